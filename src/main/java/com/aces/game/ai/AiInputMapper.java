@@ -25,56 +25,69 @@ public class AiInputMapper {
      * [38-41] Aggro-Specific (DistDiff, AvgOppDist, MinDist, ClosestPlayer)
      */
     public static List<Double> extractInputs(GameState state, Player self) {
-        List<Double> inputs = new ArrayList<>();
+        double[] row = new double[FeatureTable.INPUT_SIZE];
+        extractInputs(state, self, row, 0);
+        List<Double> inputs = new ArrayList<>(row.length);
+        for (double v : row) {
+            inputs.add(v);
+        }
+        return inputs;
+    }
+
+    /**
+     * Same inputs, written into row[offset, offset + 42) without allocating,
+     * e.g. straight into one row of a batch matrix.
+     */
+    public static void extractInputs(GameState state, Player self, double[] row, int offset) {
+        List<Player> players = state.getPlayers();
+        int playerCount = players.size();
+
+        // My Position, by identity (Player.equals compares every field)
+        int selfIdx = 0;
+        for (int i = 0; i < playerCount; i++) {
+            if (players.get(i) == self) {
+                selfIdx = i;
+                break;
+            }
+        }
 
         // 1. # of Players
-        inputs.add(state.getPlayers().size() / 8.0); // Normalize for max 8
+        row[offset] = playerCount / 8.0; // Normalize for max 8
 
         // 2. My Position (Normalized)
-        int selfIdx = state.getPlayers().indexOf(self);
-        int playerCount = state.getPlayers().size();
-        inputs.add(selfIdx / 7.0);
+        row[offset + 1] = selfIdx / 7.0;
 
         // Relative Player Info
         // Loop for MAX 8 players (Self + 7 Opponents)
         // Self is index 0 in this relative loop
+        int at = offset + 2;
         for (int i = 0; i < 8; i++) {
             if (i < playerCount) {
                 // Actual Player
-                int relativeIdx = (selfIdx + i) % playerCount;
-                Player p = state.getPlayers().get(relativeIdx);
-
-                // 1. Top Stack Rank
-                inputs.add(normalizeRank(p.getTopStack()));
-                // 2. Stack Size
-                inputs.add(p.getStack().size() / 54.0);
-                // 3. Top Discard Rank
-                inputs.add(normalizeRank(p.getLastDiscard()));
-                // 4. Hand Count
-                inputs.add(p.getHand().size() / 20.0);
+                Player p = players.get((selfIdx + i) % playerCount);
+                row[at++] = normalizeRank(p.getTopStack()); // 1. Top Stack Rank
+                row[at++] = p.getStack().size() / 54.0; // 2. Stack Size
+                row[at++] = normalizeRank(p.getLastDiscard()); // 3. Top Discard Rank
+                row[at++] = p.getHand().size() / 20.0; // 4. Hand Count
             } else {
                 // Padding for missing players
-                inputs.add(0.0);
-                inputs.add(0.0);
-                inputs.add(0.0);
-                inputs.add(0.0);
+                row[at++] = 0.0;
+                row[at++] = 0.0;
+                row[at++] = 0.0;
+                row[at++] = 0.0;
             }
         }
 
         // 19. Deck Count
-        int numDecks = (state.getPlayers().size() > 2) ? 2 : 1;
-        inputs.add(numDecks / 4.0);
+        row[offset + 34] = state.getDeckCount() / 4.0;
 
         // 20. Generic Deck Makeup (Draw Pile Size)
-        inputs.add(state.getDrawPile().size() / 54.0);
+        row[offset + 35] = state.getDrawPile().size() / 54.0;
 
         // Card under Deck
-        inputs.add(normalizeRank(state.getBottomFacingCard()));
-        if (state.getBottomFacingCard() != null) {
-            inputs.add(normalizeSuit(state.getBottomFacingCard()));
-        } else {
-            inputs.add(0.0);
-        }
+        Card bottom = state.getBottomFacingCard();
+        row[offset + 36] = normalizeRank(bottom);
+        row[offset + 37] = (bottom != null) ? normalizeSuit(bottom) : 0.0;
 
         // === AGGRO-SPECIFIC INPUTS (Index 38-41) ===
         // Calculate distance to Ace for self and all opponents
@@ -84,8 +97,7 @@ public class AiInputMapper {
         int closestPlayerIdx = 0; // Relative to self (0 = self)
 
         for (int i = 1; i < playerCount; i++) { // Start at 1 to skip self
-            int relativeIdx = (selfIdx + i) % playerCount;
-            Player opp = state.getPlayers().get(relativeIdx);
+            Player opp = players.get((selfIdx + i) % playerCount);
             double oppDist = getDistanceToAce(opp);
             totalOppDist += oppDist;
 
@@ -98,30 +110,39 @@ public class AiInputMapper {
         double avgOppDist = (playerCount > 1) ? totalOppDist / (playerCount - 1) : 14.0;
 
         // [38] DistDiff: My distance minus avg opponent distance (negative = I'm ahead)
-        inputs.add((myDistToAce - avgOppDist) / 14.0);
+        row[offset + 38] = (myDistToAce - avgOppDist) / 14.0;
 
         // [39] AvgOppDist: Average opponent distance to Ace
-        inputs.add(avgOppDist / 14.0);
+        row[offset + 39] = avgOppDist / 14.0;
 
         // [40] MinDist: Smallest distance to Ace among all players
-        inputs.add(minDist / 14.0);
+        row[offset + 40] = minDist / 14.0;
 
         // [41] ClosestPlayer: Relative position of closest player (0=self,
         // 1-7=opponents)
-        inputs.add(closestPlayerIdx / 7.0);
-
-        // === HOARD-SPECIFIC INPUT REMOVED TO MATCH 42 INPUTS ===
-        // [42] SelfHandSize removed
-
+        row[offset + 41] = closestPlayerIdx / 7.0;
+    }
 
-        return inputs;
+    /**
+     * Same inputs as floats (the training dataset's row type), written into
+     * row[offset, offset + 42).
+     */
+    public static void extractInputs(GameState state, Player self, float[] row, int offset) {
+        double[] values = FLOAT_SCRATCH.get();
+        extractInputs(state, self, values, 0);
+        for (int i = 0; i < values.length; i++) {
+            row[offset + i] = (float) values[i];
+        }
     }
 
+    private static final ThreadLocal<double[]> FLOAT_SCRATCH =
+            ThreadLocal.withInitial(() -> new double[FeatureTable.INPUT_SIZE]);
+
     /**
      * Calculate distance to Ace (how many ranks away from Ace).
      * Ace = 0 (already there), Two = 1, ... King = 12, Empty stack = 14.
      */
-    private static double getDistanceToAce(Player p) {
+    static double getDistanceToAce(Player p) {
         Card top = p.getTopStack();
         if (top == null)
             return 14.0; // No stack = max distance
@@ -147,7 +168,7 @@ public class AiInputMapper {
         return rankValue;
     }
 
-    private static double normalizeRank(Card c) {
+    static double normalizeRank(Card c) {
         if (c == null)
             return 0.0;
         if (c.getRank() == Card.Rank.JOKER)
@@ -173,7 +194,7 @@ public class AiInputMapper {
         return val / 14.0;
     }
 
-    private static double normalizeSuit(Card c) {
+    static double normalizeSuit(Card c) {
         if (c == null)
             return 0.0;
         return switch (c.getSuit()) {
@@ -0,0 +1,72 @@
+package com.aces.game.ai;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Versioned brains for CPU seats.
+ *
+ * Version 0 is always the shared {@link GlobalAi} brain. Every other version
+ * is a mutated child created with {@link NeuralNetwork#mutatedCopy}, which
+ * shares all unchanged layers with its parent. Seats only hold a version
+ * number, so any number of seats can point at the same weights, and a
+ * version is dropped once no seat references it.
+ */
+public class BrainRegistry {
+
+    public static final int ROOT_VERSION = 0;
+
+    private static final Map<Integer, NeuralNetwork> versions = new HashMap<>();
+    private static final Map<Integer, Integer> refCounts = new HashMap<>();
+    private static int nextVersion = 1;
+
+    private BrainRegistry() {
+    }
+
+    /**
+     * Brain for the given version. Unknown versions fall back to the global
+     * brain.
+     */
+    public static synchronized NeuralNetwork get(int version) {
+        if (version == ROOT_VERSION)
+            return GlobalAi.getInstance();
+        NeuralNetwork brain = versions.get(version);
+        return brain != null ? brain : GlobalAi.getInstance();
+    }
+
+    /**
+     * Registers a mutated child of the given version and returns its version
+     * number, referenced once by the caller.
+     */
+    public static synchronized int fork(int parentVersion, double rate, double strength) {
+        NeuralNetwork child = get(parentVersion).mutatedCopy(rate, strength);
+        int version = nextVersion++;
+        versions.put(version, child);
+        refCounts.put(version, 1);
+        return version;
+    }
+
+    /**
+     * Drops a reference; the version is forgotten when none remain.
+     */
+    public static synchronized void release(int version) {
+        if (version == ROOT_VERSION)
+            return;
+        Integer count = refCounts.get(version);
+        if (count == null)
+            return;
+        if (count <= 1) {
+            refCounts.remove(version);
+            versions.remove(version);
+        } else {
+            refCounts.put(version, count - 1);
+        }
+    }
+
+    /**
+     * Number of live versions, not counting the global brain.
+     */
+    public static synchronized int size() {
+        return versions.size();
+    }
+}
@@ -0,0 +1,101 @@
+package com.aces.game.ai;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes a network's weights as JSON for the brain visualizer.
+ *
+ * Weights are streamed straight from each neuron's array with a
+ * JsonGenerator (no reflection or boxing), and the bytes are cached per
+ * {@link NeuralNetwork#getGeneration() generation}, so a brain is only
+ * serialized again after its weights change.
+ *
+ * Shape: { "generation", "strategyLayers", "strategyBottleneck",
+ * "planPreLayers", "planPostLayers", "executionLayers", "outputLayer" }
+ * where each layer is { "neurons": [ { "bias", "weights": [...] } ] }.
+ */
+public class BrainSerializer {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final int MAX_CACHED = 64;
+    private static final Map<Long, byte[]> cache = new ConcurrentHashMap<>();
+
+    private BrainSerializer() {
+    }
+
+    public static byte[] toJson(NeuralNetwork brain) {
+        long generation = brain.getGeneration();
+        byte[] json = cache.get(generation);
+        if (json != null)
+            return json;
+
+        json = write(brain, generation);
+
+        // Only cache if the weights did not change while we were writing
+        if (brain.getGeneration() == generation) {
+            if (cache.size() >= MAX_CACHED) {
+                cache.clear();
+            }
+            cache.put(generation, json);
+        }
+        return json;
+    }
+
+    private static byte[] write(NeuralNetwork brain, long generation) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        try (JsonGenerator gen = jsonFactory.createGenerator(out)) {
+            gen.writeStartObject();
+            gen.writeNumberField("generation", generation);
+            writeLayers(gen, "strategyLayers", brain.getStrategyLayers());
+            writeLayer(gen, "strategyBottleneck", brain.getStrategyBottleneck());
+            writeLayers(gen, "planPreLayers", brain.getPlanPreLayers());
+            writeLayers(gen, "planPostLayers", brain.getPlanPostLayers());
+            writeLayers(gen, "executionLayers", brain.getExecutionLayers());
+            writeLayer(gen, "outputLayer", brain.getOutputLayer());
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeLayers(JsonGenerator gen, String name, List<Layer> layers) throws IOException {
+        if (layers == null)
+            return;
+        gen.writeArrayFieldStart(name);
+        for (Layer l : layers) {
+            writeLayer(gen, l);
+        }
+        gen.writeEndArray();
+    }
+
+    private static void writeLayer(JsonGenerator gen, String name, Layer layer) throws IOException {
+        if (layer == null)
+            return;
+        gen.writeFieldName(name);
+        writeLayer(gen, layer);
+    }
+
+    private static void writeLayer(JsonGenerator gen, Layer layer) throws IOException {
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("neurons");
+        for (Neuron n : layer.getNeurons()) {
+            double[] weights = n.getWeights();
+            gen.writeStartObject();
+            gen.writeNumberField("bias", n.getBias());
+            gen.writeFieldName("weights");
+            gen.writeArray(weights, 0, weights.length);
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,25 @@
+package com.aces.game.ai;
+
+import java.util.List;
+
+/**
+ * What a CPU's brain saw and produced at its last real decision. Immutable,
+ * so any number of viewers can read it while the game moves on.
+ *
+ * action: 0: PASS, 1: STACK, 2: SKIP, 3: ATTACK, 4: NORMAL
+ */
+public record DecisionSnapshot(
+        String playerId,
+        List<Double> inputs,
+        List<Double> strategy,
+        List<Double> outputs,
+        int action,
+        long timestamp) {
+
+    public static DecisionSnapshot of(String playerId, List<Double> inputs, List<Double> strategy,
+            List<Double> outputs, int action) {
+        return new DecisionSnapshot(playerId, List.copyOf(inputs),
+                strategy != null ? List.copyOf(strategy) : List.of(), List.copyOf(outputs), action,
+                System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,163 @@
+package com.aces.game.ai;
+
+import com.aces.game.domain.GameState;
+import com.aces.game.domain.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The inputs of {@link AiInputMapper#extractInputs}, kept up to date as cards
+ * move instead of being rebuilt for every decision.
+ *
+ * Each seat's four values (top stack rank, stack size, last discard rank,
+ * hand size) and its distance to the Ace are stored by absolute seat, for
+ * any number of seats, and the game-wide values once. Like the mapper, the
+ * inputs show at most eight seats, counted from the deciding seat.
+ *
+ * Whoever moves cards reports the seats involved ({@link #seatChanged}) and
+ * any change to the draw pile ({@link #pilesChanged}); a decision then only
+ * rotates the seat blocks into the deciding seat's order and adds the
+ * distance summary.
+ */
+public class FeatureTable {
+
+    public static final int INPUT_SIZE = 42;
+
+    // Seats shown in the inputs, self first
+    private static final int MAX_SEATS = 8;
+    private static final int SEAT_FEATURES = 4;
+
+    private double[] seatFeatures = new double[MAX_SEATS * SEAT_FEATURES];
+    private double[] aceDistance = new double[MAX_SEATS];
+    private Player[] seats = new Player[0];
+    private final double[] floatScratch = new double[INPUT_SIZE];
+
+    private double deckCount;
+    private double drawPileSize;
+    private double bottomRank;
+    private double bottomSuit;
+
+    /**
+     * Recomputes everything, e.g. for a new game or a new seating.
+     */
+    public void reset(GameState state) {
+        List<Player> players = state.getPlayers();
+        seats = players.toArray(new Player[0]);
+        if (seats.length > aceDistance.length) {
+            seatFeatures = new double[seats.length * SEAT_FEATURES];
+            aceDistance = new double[seats.length];
+        }
+        for (Player p : seats) {
+            seatChanged(p);
+        }
+        deckCount = state.getDeckCount() / 4.0;
+        pilesChanged(state);
+    }
+
+    /**
+     * Cards were added to or taken from this player's hand, stack or discards.
+     */
+    public void seatChanged(Player p) {
+        int seat = seatOf(p);
+        if (seat < 0)
+            return;
+        int base = seat * SEAT_FEATURES;
+        seatFeatures[base] = AiInputMapper.normalizeRank(p.getTopStack());
+        seatFeatures[base + 1] = p.getStack().size() / 54.0;
+        seatFeatures[base + 2] = AiInputMapper.normalizeRank(p.getLastDiscard());
+        seatFeatures[base + 3] = p.getHand().size() / 20.0;
+        aceDistance[seat] = AiInputMapper.getDistanceToAce(p);
+    }
+
+    /**
+     * The draw pile changed size or got a new bottom card.
+     */
+    public void pilesChanged(GameState state) {
+        drawPileSize = state.getDrawPile().size() / 54.0;
+        bottomRank = AiInputMapper.normalizeRank(state.getBottomFacingCard());
+        bottomSuit = (state.getBottomFacingCard() != null)
+                ? AiInputMapper.normalizeSuit(state.getBottomFacingCard())
+                : 0.0;
+    }
+
+    /**
+     * Seat of the player in the table, by identity, or -1.
+     */
+    public int seatOf(Player p) {
+        for (int i = 0; i < seats.length; i++) {
+            if (seats[i] == p)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the inputs as seen from the given seat into
+     * out[offset, offset + INPUT_SIZE), in the layout documented on
+     * AiInputMapper. Allocates nothing.
+     */
+    public void extract(int self, double[] out, int offset) {
+        int playerCount = seats.length;
+        out[offset] = playerCount / 8.0;
+        out[offset + 1] = self / 7.0;
+
+        // Seat blocks, starting with self; missing seats are padded with 0
+        int blocks = offset + 2;
+        int shown = Math.min(playerCount, MAX_SEATS);
+        int fromSelf = Math.min(playerCount - self, shown);
+        int after = fromSelf * SEAT_FEATURES;
+        System.arraycopy(seatFeatures, self * SEAT_FEATURES, out, blocks, after);
+        int before = (shown - fromSelf) * SEAT_FEATURES;
+        System.arraycopy(seatFeatures, 0, out, blocks + after, before);
+        Arrays.fill(out, blocks + after + before, blocks + MAX_SEATS * SEAT_FEATURES, 0.0);
+
+        out[offset + 34] = deckCount;
+        out[offset + 35] = drawPileSize;
+        out[offset + 36] = bottomRank;
+        out[offset + 37] = bottomSuit;
+
+        double myDistToAce = aceDistance[self];
+        double totalOppDist = 0;
+        double minDist = myDistToAce;
+        int closestPlayerIdx = 0;
+        for (int i = 1; i < playerCount; i++) {
+            double oppDist = aceDistance[(self + i) % playerCount];
+            totalOppDist += oppDist;
+            if (oppDist < minDist) {
+                minDist = oppDist;
+                closestPlayerIdx = i;
+            }
+        }
+        double avgOppDist = (playerCount > 1) ? totalOppDist / (playerCount - 1) : 14.0;
+        out[offset + 38] = (myDistToAce - avgOppDist) / 14.0;
+        out[offset + 39] = avgOppDist / 14.0;
+        out[offset + 40] = minDist / 14.0;
+        out[offset + 41] = closestPlayerIdx / 7.0;
+    }
+
+    /**
+     * Same as {@link #extract(int, double[], int)} for a float row, such as
+     * a training dataset batch.
+     */
+    public void extract(int self, float[] out, int offset) {
+        extract(self, floatScratch, 0);
+        for (int i = 0; i < INPUT_SIZE; i++) {
+            out[offset + i] = (float) floatScratch[i];
+        }
+    }
+
+    /**
+     * Inputs as seen from the player, as a new list.
+     */
+    public List<Double> inputs(Player self) {
+        double[] row = new double[INPUT_SIZE];
+        extract(Math.max(0, seatOf(self)), row, 0);
+        List<Double> inputs = new ArrayList<>(INPUT_SIZE);
+        for (double v : row) {
+            inputs.add(v);
+        }
+        return inputs;
+    }
+}
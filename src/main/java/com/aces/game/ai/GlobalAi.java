@@ -6,6 +6,10 @@ import java.io.IOException;
 
 public class GlobalAi {
 
+    // One output per kind of move: PASS, STACK, SKIP, ATTACK, NORMAL. A saved
+    // brain with any other count is replaced on load
+    public static final int OUTPUT_SIZE = 5;
+
     private static NeuralNetwork INSTANCE;
     private static final String FILE_PATH = "brain.json";
     private static final ObjectMapper mapper = new ObjectMapper();
@@ -19,14 +23,14 @@ public class GlobalAi {
                 INSTANCE = mapper.readValue(f, NeuralNetwork.class);
 
                 // Verify Input Size (Neuron Weights in first layer = Input Size)
-                int checkSize = INSTANCE.getStrategyLayers().get(0).getNeurons().get(0).getWeights().size();
+                int checkSize = INSTANCE.getStrategyLayers().get(0).getNeurons().get(0).getWeights().length;
 
                 // Verify Execution Layer Input Size (should be 41: 38 Inputs + 3 Strategy)
-                // Also verify Output Layer Size (should be 5)
+                // Also verify Output Layer Size (should be OUTPUT_SIZE)
                 int execSize = 0;
                 int outputSize = 0;
                 if (!INSTANCE.getExecutionLayers().isEmpty()) {
-                    execSize = INSTANCE.getExecutionLayers().get(0).getNeurons().get(0).getWeights().size();
+                    execSize = INSTANCE.getExecutionLayers().get(0).getNeurons().get(0).getWeights().length;
                 }
                 if (INSTANCE.getOutputLayer() != null && !INSTANCE.getOutputLayer().getNeurons().isEmpty()) {
                     outputSize = INSTANCE.getOutputLayer().getNeurons().size();
@@ -35,7 +39,7 @@ public class GlobalAi {
                 // Verify Bottleneck Size (should be 36: 32 Strategy + 4 Aggro)
                 int bnSize = 0;
                 if (INSTANCE.getStrategyBottleneck() != null && !INSTANCE.getStrategyBottleneck().getNeurons().isEmpty()) {
-                    bnSize = INSTANCE.getStrategyBottleneck().getNeurons().get(0).getWeights().size();
+                    bnSize = INSTANCE.getStrategyBottleneck().getNeurons().get(0).getWeights().length;
                 }
 
                 // Verify Plan Pre-Layers exist (3 layers, 5 neurons each)
@@ -44,19 +48,19 @@ public class GlobalAi {
                     && INSTANCE.getPlanPreLayers().get(0).getNeurons().size() == 5;
 
                 // Expected execution input size: 3 (strategy) + 5 (planPost) + 42 (inputs) = 50
-                if (checkSize != 38 || execSize != 50 || outputSize != 5 || bnSize != 36 || !hasPlanLayers) {
+                if (checkSize != 38 || execSize != 50 || outputSize != OUTPUT_SIZE || bnSize != 36 || !hasPlanLayers) {
                     System.out.println("GlobalAi: Mismatched brain topology (In=" + checkSize + ", ExecIn=" + execSize
                             + ", Out=" + outputSize + ", Bn=" + bnSize + ", PlanLayers=" + hasPlanLayers + "). Resetting to new architecture with Plan networks.");
-                    INSTANCE = new NeuralNetwork(42, 5);
+                    INSTANCE = new NeuralNetwork(FeatureTable.INPUT_SIZE, OUTPUT_SIZE);
                 }
             } else {
                 System.out.println("GlobalAi: Creating new brain.");
-                INSTANCE = new NeuralNetwork(42, 5);
+                INSTANCE = new NeuralNetwork(FeatureTable.INPUT_SIZE, OUTPUT_SIZE);
             }
         } catch (Exception e) {
             System.err.println("GlobalAi: Failed to load brain. Starting fresh. Error: " + e.getMessage());
             e.printStackTrace();
-            INSTANCE = new NeuralNetwork(42, 5);
+            INSTANCE = new NeuralNetwork(FeatureTable.INPUT_SIZE, OUTPUT_SIZE);
         }
     }
 
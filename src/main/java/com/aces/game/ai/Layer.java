@@ -16,6 +16,21 @@ public class Layer {
         }
     }
 
+    public Layer(List<Neuron> neurons) {
+        this.neurons = neurons;
+    }
+
+    /**
+     * Deep copy, used when a shared layer is about to be written.
+     */
+    public Layer copy() {
+        List<Neuron> copied = new ArrayList<>(neurons.size());
+        for (Neuron n : neurons) {
+            copied.add(n.copy());
+        }
+        return new Layer(copied);
+    }
+
     public List<Double> feedForward(List<Double> inputs) {
         List<Double> outputs = new ArrayList<>();
         for (Neuron n : neurons) {
@@ -24,6 +39,20 @@ public class Layer {
         return outputs;
     }
 
+    /**
+     * Same as {@link #feedForward(List)}, writing one value per neuron into
+     * out starting at outOffset.
+     */
+    public void feedForward(double[] inputs, int offset, int length, double[] out, int outOffset) {
+        for (int n = 0; n < neurons.size(); n++) {
+            out[outOffset + n] = neurons.get(n).activate(inputs, offset, length);
+        }
+    }
+
+    public int size() {
+        return neurons.size();
+    }
+
     public List<Neuron> getNeurons() {
         return neurons;
     }
@@ -1,7 +1,10 @@
 package com.aces.game.ai;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class NeuralNetwork {
     // --- Architecture Blocks ---
@@ -20,6 +23,21 @@ public class NeuralNetwork {
     // Storage for backprop
     private List<List<Double>> layerActivations = new ArrayList<>();
 
+    // Scratch rows for the primitive forward pass, sized on first use
+    private static final int STANDARD_INPUTS = 38;
+    private double[] rowA;
+    private double[] rowB;
+    private double[] bottleneckIn;
+    private double[] strategyRow;
+    private double[] executionIn;
+    private int scratchInputLength;
+    private int runWidth; // Width of the row returned by the last runLayers
+
+    // Identifies the current weights and changes whenever they do. Drawn from
+    // one global sequence, so it is unique across networks (used as ETag).
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+    private volatile long generation = GENERATIONS.incrementAndGet();
+
     public NeuralNetwork() {
     } // Default for serialization
 
@@ -46,9 +64,9 @@ public class NeuralNetwork {
         // Zero out Aggro-specific weights (32-35) for Hoard (neuron 1) and Plan (neuron 2)
         for (int n = 1; n <= 2; n++) {
             Neuron neuron = strategyBottleneck.getNeurons().get(n);
-            List<Double> w = neuron.getWeights();
+            double[] w = neuron.getWeights();
             for (int i = 32; i < 36; i++) {
-                w.set(i, 0.0); // No Aggro input connection
+                w[i] = 0.0; // No Aggro input connection
             }
         }
 
@@ -80,9 +98,9 @@ public class NeuralNetwork {
 
         // REDUCE Residual Connection Weights (Indices 3+planWidth to end)
         for (Neuron n : execL0.getNeurons()) {
-            List<Double> w = n.getWeights();
-            for (int i = 3 + planWidth; i < w.size(); i++) {
-                w.set(i, w.get(i) * 0.1); // 10% strength
+            double[] w = n.getWeights();
+            for (int i = 3 + planWidth; i < w.length; i++) {
+                w[i] *= 0.1; // 10% strength
             }
         }
 
@@ -107,9 +125,8 @@ public class NeuralNetwork {
                 Neuron preNeuron = preLayer.getNeurons().get(neuronIdx);
                 Neuron postNeuron = postLayer.getNeurons().get(neuronIdx);
                 // Copy weights
-                for (int wIdx = 0; wIdx < preNeuron.getWeights().size(); wIdx++) {
-                    postNeuron.getWeights().set(wIdx, preNeuron.getWeights().get(wIdx));
-                }
+                System.arraycopy(preNeuron.getWeights(), 0, postNeuron.getWeights(), 0,
+                        preNeuron.getWeights().length);
                 // Copy bias
                 postNeuron.setBias(preNeuron.getBias());
             }
@@ -163,7 +180,11 @@ public class NeuralNetwork {
         
         // Modulate Plan value with planPreOut (add average of planPreOut)
         if (planPreOut != null && !planPreOut.isEmpty()) {
-            double planBoost = planPreOut.stream().mapToDouble(d -> d).average().orElse(0.0);
+            double sum = 0;
+            for (double v : planPreOut) {
+                sum += v;
+            }
+            double planBoost = sum / planPreOut.size();
             double originalPlan = strategyValues.get(2);
             // Sigmoid blend: keep in 0-1 range
             double modifiedPlan = 1.0 / (1.0 + Math.exp(-(originalPlan + planBoost * 0.5 - 0.5)));
@@ -201,6 +222,95 @@ public class NeuralNetwork {
         return outputLayer.feedForward(current);
     }
 
+    /**
+     * Same computation as {@link #feedForward(List)} on the row
+     * inputs[offset, offset + length), writing the outputs into out at
+     * outOffset, so rows can be read from and written to batch matrices.
+     * Works in scratch rows owned by this network and allocates nothing after
+     * the first call. Like the List version it is not thread-safe; it leaves
+     * the visualizer and training state (activations, last values) alone.
+     */
+    public void feedForward(double[] inputs, int offset, int length, double[] out, int outOffset) {
+        ensureScratch(length);
+
+        // 1. Strategy Block on the standard inputs
+        double[] strat = runLayers(strategyLayers, inputs, offset, STANDARD_INPUTS);
+        int stratWidth = runWidth;
+
+        // 2-4. Bottleneck on Strategy + Aggro inputs
+        System.arraycopy(strat, 0, bottleneckIn, 0, stratWidth);
+        for (int i = 0; i < 4; i++) {
+            bottleneckIn[stratWidth + i] = (length >= 42) ? inputs[offset + STANDARD_INPUTS + i] : 0.0;
+        }
+        strategyBottleneck.feedForward(bottleneckIn, 0, stratWidth + 4, strategyRow, 0);
+        int strategyWidth = strategyBottleneck.size();
+
+        double[] planPre = runLayers(planPreLayers, inputs, offset, STANDARD_INPUTS);
+        if (runWidth > 0) {
+            double sum = 0;
+            for (int i = 0; i < runWidth; i++) {
+                sum += planPre[i];
+            }
+            double planBoost = sum / runWidth;
+            strategyRow[2] = 1.0 / (1.0 + Math.exp(-(strategyRow[2] + planBoost * 0.5 - 0.5)));
+        }
+
+        // 5. Plan Post-Processing
+        if (planPostLayers != null) {
+            syncPlanWeights();
+        }
+        double[] planPost = runLayers(planPostLayers, inputs, offset, STANDARD_INPUTS);
+        int postWidth = runWidth;
+
+        // 6. Execution Input (Strategy + PlanPost + Residual Inputs)
+        System.arraycopy(strategyRow, 0, executionIn, 0, strategyWidth);
+        System.arraycopy(planPost, 0, executionIn, strategyWidth, postWidth);
+        System.arraycopy(inputs, offset, executionIn, strategyWidth + postWidth, length);
+
+        // 7-8. Execution Block and Output
+        double[] exec = runLayers(executionLayers, executionIn, 0, strategyWidth + postWidth + length);
+        outputLayer.feedForward(exec, 0, runWidth, out, outOffset);
+    }
+
+    // Runs in[offset, offset + length) through the layers, ping-ponging
+    // between rowA and rowB; returns the row holding the result (width in runWidth)
+    private double[] runLayers(List<Layer> layers, double[] in, int offset, int length) {
+        System.arraycopy(in, offset, rowA, 0, length);
+        double[] current = rowA;
+        double[] next = rowB;
+        int width = length;
+        if (layers != null) {
+            for (Layer l : layers) {
+                l.feedForward(current, 0, width, next, 0);
+                width = l.size();
+                double[] t = current;
+                current = next;
+                next = t;
+            }
+        }
+        runWidth = width;
+        return current;
+    }
+
+    private void ensureScratch(int inputLength) {
+        if (rowA != null && inputLength == scratchInputLength)
+            return;
+        // Widest row: the execution input (strategy + plan + inputs) or a layer
+        int width = inputLength + STANDARD_INPUTS + 8;
+        for (Layer l : strategyLayers) {
+            width = Math.max(width, l.size());
+        }
+        for (Layer l : executionLayers) {
+            width = Math.max(width, l.size());
+        }
+        scratchInputLength = inputLength;
+        rowA = new double[width];
+        rowB = new double[width];
+        bottleneckIn = new double[width];
+        strategyRow = new double[width];
+        executionIn = new double[width];
+    }
+
     // Backpropagation for Reinforcement Learning
     public void train(List<Double> inputs, int actionIndex, double reward) {
         // Re-run feedForward to populate layerActivations just in case context changed
@@ -210,6 +320,8 @@ public class NeuralNetwork {
         // Input to OutputLayer is the last stored activation from Execution Block
         List<Double> inputToLast = layerActivations.get(layerActivations.size() - 1);
 
+        // Layers may be shared with other networks (see mutatedCopy), so write to a copy
+        outputLayer = outputLayer.copy();
         Neuron actionNode = outputLayer.getNeurons().get(actionIndex);
         double output = actionNode.getValue();
         double error = reward - output;
@@ -218,35 +330,115 @@ public class NeuralNetwork {
         double learningRate = 0.2;
 
         actionNode.adjustWeights(inputToLast, delta, learningRate);
+        touch();
     }
 
+    /**
+     * Randomly adjusts weights - This simulates "Training" (Search).
+     * Layers are never written in place: a layer with at least one mutated
+     * neuron is replaced by a mutated copy, so networks sharing layers with
+     * this one (see {@link #mutatedCopy}) are unaffected.
+     */
     public void mutate(double rate, double strength) {
-        // Randomly adjust weights - This simulates "Training" (Search)
-        mutateLayer(outputLayer, rate, strength);
-        mutateLayer(strategyBottleneck, rate, strength);
-        for (Layer l : executionLayers)
-            mutateLayer(l, rate, strength);
-        for (Layer l : strategyLayers)
-            mutateLayer(l, rate, strength);
+        outputLayer = mutateLayer(outputLayer, rate, strength);
+        strategyBottleneck = mutateLayer(strategyBottleneck, rate, strength);
+        executionLayers = mutateLayers(executionLayers, rate, strength);
+        strategyLayers = mutateLayers(strategyLayers, rate, strength);
         // Mutate planPreLayers (planPostLayers will be synced)
         if (planPreLayers != null) {
-            for (Layer l : planPreLayers)
-                mutateLayer(l, rate, strength);
+            List<Layer> oldPre = planPreLayers;
+            planPreLayers = mutateLayers(planPreLayers, rate, strength);
+            // A post layer mirrors its pre layer, so it must be copied before syncing
+            if (planPostLayers != null) {
+                List<Layer> post = new ArrayList<>(planPostLayers);
+                for (int i = 0; i < post.size() && i < oldPre.size(); i++) {
+                    if (oldPre.get(i) != planPreLayers.get(i)) {
+                        post.set(i, post.get(i).copy());
+                    }
+                }
+                planPostLayers = post;
+            }
             syncPlanWeights(); // Keep post in sync with pre
         }
+        touch();
+    }
+
+    /**
+     * Creates a mutated child network. Only the layers that actually change
+     * are copied; every other layer is shared with this network, so many
+     * CPU personalities cost little more memory than one brain.
+     */
+    public NeuralNetwork mutatedCopy(double rate, double strength) {
+        NeuralNetwork copy = new NeuralNetwork();
+        copy.strategyLayers = strategyLayers;
+        copy.strategyBottleneck = strategyBottleneck;
+        copy.planPreLayers = planPreLayers;
+        copy.planPostLayers = planPostLayers;
+        copy.executionLayers = executionLayers;
+        copy.outputLayer = outputLayer;
+        copy.mutate(rate, strength);
+        return copy;
+    }
+
+    /**
+     * Copy that shares no layers with this network. feedForward writes
+     * activations into the neurons, so a network used on another thread
+     * (e.g. by a search) must have its own.
+     */
+    public NeuralNetwork copy() {
+        NeuralNetwork copy = new NeuralNetwork();
+        copy.strategyLayers = copyLayers(strategyLayers);
+        copy.strategyBottleneck = strategyBottleneck.copy();
+        copy.planPreLayers = copyLayers(planPreLayers);
+        copy.planPostLayers = copyLayers(planPostLayers);
+        copy.executionLayers = copyLayers(executionLayers);
+        copy.outputLayer = outputLayer.copy();
+        copy.generation = generation;
+        return copy;
+    }
+
+    private static List<Layer> copyLayers(List<Layer> layers) {
+        if (layers == null)
+            return null;
+        List<Layer> result = new ArrayList<>(layers.size());
+        for (Layer l : layers) {
+            result.add(l.copy());
+        }
+        return result;
     }
 
-    private void mutateLayer(Layer l, double rate, double strength) {
-        for (Neuron n : l.getNeurons()) {
+    private static List<Layer> mutateLayers(List<Layer> layers, double rate, double strength) {
+        List<Layer> result = new ArrayList<>(layers.size());
+        for (Layer l : layers) {
+            result.add(mutateLayer(l, rate, strength));
+        }
+        return result;
+    }
+
+    private static Layer mutateLayer(Layer l, double rate, double strength) {
+        Layer target = null;
+        for (int n = 0; n < l.getNeurons().size(); n++) {
             if (Math.random() < rate) {
+                if (target == null) {
+                    target = l.copy();
+                }
                 // Mutate weights
-                for (int i = 0; i < n.getWeights().size(); i++) {
-                    double w = n.getWeights().get(i);
-                    w += (Math.random() * 2 - 1) * strength;
-                    n.getWeights().set(i, w);
+                double[] w = target.getNeurons().get(n).getWeights();
+                for (int i = 0; i < w.length; i++) {
+                    w[i] += (Math.random() * 2 - 1) * strength;
                 }
             }
         }
+        return target != null ? target : l;
+    }
+
+    private void touch() {
+        generation = GENERATIONS.incrementAndGet();
+    }
+
+    @JsonIgnore
+    public long getGeneration() {
+        return generation;
     }
 
     // --- Getters for Visualization ---
@@ -273,18 +465,22 @@ public class NeuralNetwork {
     // --- Setters for JSON Serialization ---
     public void setStrategyLayers(List<Layer> strategyLayers) {
         this.strategyLayers = strategyLayers;
+        touch();
     }
 
     public void setStrategyBottleneck(Layer strategyBottleneck) {
         this.strategyBottleneck = strategyBottleneck;
+        touch();
     }
 
     public void setExecutionLayers(List<Layer> executionLayers) {
         this.executionLayers = executionLayers;
+        touch();
     }
 
     public void setOutputLayer(Layer outputLayer) {
         this.outputLayer = outputLayer;
+        touch();
     }
 
     public void setLastStrategyValues(List<Double> lastStrategyValues) {
@@ -306,6 +502,7 @@ public class NeuralNetwork {
 
     public void setPlanPreLayers(List<Layer> planPreLayers) {
         this.planPreLayers = planPreLayers;
+        touch();
     }
 
     public List<Layer> getPlanPostLayers() {
@@ -314,6 +511,7 @@ public class NeuralNetwork {
 
     public void setPlanPostLayers(List<Layer> planPostLayers) {
         this.planPostLayers = planPostLayers;
+        touch();
     }
 
     public List<Double> getLastPlanPreValues() {
@@ -1,35 +1,56 @@
 package com.aces.game.ai;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public class Neuron {
     private double value;
-    private List<Double> weights;
+    private double[] weights;
     private double bias;
 
     public Neuron() {
     } // Default for serialization
 
     public Neuron(int inputSize) {
-        this.weights = new ArrayList<>();
+        this.weights = new double[inputSize];
         this.bias = Math.random() * 2 - 1; // Random -1 to 1
         for (int i = 0; i < inputSize; i++) {
-            this.weights.add(Math.random() * 2 - 1); // Random weights
+            this.weights[i] = Math.random() * 2 - 1; // Random weights
         }
     }
 
+    /**
+     * Independent copy of this neuron's weights and bias.
+     */
+    public Neuron copy() {
+        Neuron n = new Neuron();
+        n.weights = weights.clone();
+        n.bias = bias;
+        n.value = value;
+        return n;
+    }
+
     public double activate(List<Double> inputs) {
         double sum = bias;
         for (int i = 0; i < inputs.size(); i++) {
-            sum += inputs.get(i) * weights.get(i);
+            sum += inputs.get(i) * weights[i];
         }
         // Sigmoid activation
         this.value = 1.0 / (1.0 + Math.exp(-sum));
         return this.value;
     }
 
+    /**
+     * Same as {@link #activate(List)} on inputs[offset, offset + length).
+     */
+    public double activate(double[] inputs, int offset, int length) {
+        double sum = bias;
+        for (int i = 0; i < length; i++) {
+            sum += inputs[offset + i] * weights[i];
+        }
+        this.value = 1.0 / (1.0 + Math.exp(-sum));
+        return this.value;
+    }
+
     public double getValue() {
         return value;
     }
@@ -38,11 +59,11 @@ public class Neuron {
         this.value = value;
     }
 
-    public List<Double> getWeights() {
+    public double[] getWeights() {
         return weights;
     }
 
-    public void setWeights(List<Double> weights) {
+    public void setWeights(double[] weights) {
         this.weights = weights;
     }
 
@@ -55,9 +76,9 @@ public class Neuron {
     }
 
     public void adjustWeights(List<Double> inputs, double delta, double learningRate) {
-        for (int i = 0; i < weights.size(); i++) {
+        for (int i = 0; i < weights.length; i++) {
             double change = inputs.get(i) * delta * learningRate;
-            weights.set(i, weights.get(i) + change);
+            weights[i] += change;
         }
         this.bias += delta * learningRate;
     }
@@ -0,0 +1,156 @@
+package com.aces.game.ai;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader for files produced by {@link TrainingDatasetWriter}.
+ *
+ * Each call to {@link #nextChunk()} memory-maps the next chunk, and the
+ * columns are exposed as float views over the mapping, so trainers can
+ * stream samples without copying or parsing.
+ *
+ * Usage:
+ * try (TrainingDatasetReader reader = TrainingDatasetReader.open(path)) {
+ * while (reader.nextChunk()) {
+ * FloatBuffer handSize = reader.column(5);
+ * ...
+ * }
+ * }
+ */
+public class TrainingDatasetReader implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final int featureCount;
+    private final long size;
+    private long position = TrainingDatasetWriter.HEADER_BYTES;
+
+    // Current chunk
+    private MappedByteBuffer chunk;
+    private int rows = 0;
+
+    private TrainingDatasetReader(FileChannel channel, int featureCount) throws IOException {
+        this.channel = channel;
+        this.featureCount = featureCount;
+        this.size = channel.size();
+    }
+
+    public static TrainingDatasetReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < TrainingDatasetWriter.HEADER_BYTES) {
+                throw new IOException("File too small to be a dataset: " + path);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TrainingDatasetWriter.HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != TrainingDatasetWriter.MAGIC) {
+                throw new IOException("Not a training dataset: " + path);
+            }
+            int version = header.getInt();
+            if (version != TrainingDatasetWriter.FORMAT_VERSION) {
+                throw new IOException("Unsupported dataset version " + version + ": " + path);
+            }
+            return new TrainingDatasetReader(channel, header.getInt());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    /**
+     * Maps the next chunk. Returns false at end of file.
+     */
+    public boolean nextChunk() throws IOException {
+        if (position + TrainingDatasetWriter.CHUNK_HEADER_BYTES > size) {
+            chunk = null;
+            rows = 0;
+            return false;
+        }
+
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                TrainingDatasetWriter.CHUNK_HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt() != TrainingDatasetWriter.CHUNK_MAGIC) {
+            throw new IOException("Corrupt chunk at offset " + position);
+        }
+        int chunkRows = header.getInt();
+        int chunkBytes = TrainingDatasetWriter.chunkBytes(featureCount, chunkRows);
+        if (position + chunkBytes > size) {
+            // Truncated tail (e.g. crash mid-write) - treat as end of data
+            chunk = null;
+            rows = 0;
+            return false;
+        }
+
+        chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkBytes);
+        chunk.order(ByteOrder.LITTLE_ENDIAN);
+        rows = chunkRows;
+        position += chunkBytes;
+        return true;
+    }
+
+    /**
+     * Number of rows in the current chunk.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Float view of one feature column of the current chunk.
+     */
+    public FloatBuffer column(int feature) {
+        return floatView(columnOffset(feature));
+    }
+
+    /**
+     * Float view of the outcome column of the current chunk.
+     */
+    public FloatBuffer outcomes() {
+        return floatView(columnOffset(featureCount));
+    }
+
+    public float feature(int feature, int row) {
+        return chunk.getFloat(columnOffset(feature) + row * 4);
+    }
+
+    public float outcome(int row) {
+        return chunk.getFloat(columnOffset(featureCount) + row * 4);
+    }
+
+    public int action(int row) {
+        return chunk.get(columnOffset(featureCount + 1) + row);
+    }
+
+    /**
+     * Copies one row's features into the given array.
+     */
+    public void readRow(int row, float[] out) {
+        for (int f = 0; f < featureCount; f++) {
+            out[f] = feature(f, row);
+        }
+    }
+
+    private int columnOffset(int column) {
+        return TrainingDatasetWriter.CHUNK_HEADER_BYTES + column * 4 * rows;
+    }
+
+    private FloatBuffer floatView(int offset) {
+        return chunk.slice(offset, rows * 4).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        chunk = null;
+        channel.close();
+    }
+}
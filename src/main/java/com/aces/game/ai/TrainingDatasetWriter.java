@@ -0,0 +1,171 @@
+package com.aces.game.ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Appends training samples to a columnar, chunked binary file.
+ *
+ * File layout (little-endian):
+ * [Header] magic, format version, feature count, reserved
+ * [Chunk]* chunk magic, row count,
+ * feature columns (featureCount x rowCount float32),
+ * outcome column (rowCount float32),
+ * action column (rowCount int8, padded to 4 bytes)
+ *
+ * Rows are buffered in memory column by column and written one chunk at a
+ * time, so readers can map a chunk and stream each column sequentially.
+ */
+public class TrainingDatasetWriter {
+
+    public static final int MAGIC = 0x53444341; // "ACDS"
+    public static final int CHUNK_MAGIC = 0x4B4E4843; // "CHNK"
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int CHUNK_HEADER_BYTES = 8;
+
+    private static final String FILE_PATH = "training.dat";
+    private static final int DEFAULT_CHUNK_ROWS = 4096;
+
+    private static TrainingDatasetWriter INSTANCE;
+
+    private final Path path;
+    private final int featureCount;
+    private final int chunkRows;
+
+    // Pending chunk, stored column-major
+    private final float[][] columns;
+    private final float[] outcomes;
+    private final byte[] actions;
+    private int rows = 0;
+
+    // Not synchronized: flush() does file I/O, which would pin a virtual
+    // thread to its carrier inside a synchronized block
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public TrainingDatasetWriter(Path path, int featureCount, int chunkRows) {
+        this.path = path;
+        this.featureCount = featureCount;
+        this.chunkRows = chunkRows;
+        this.columns = new float[featureCount][chunkRows];
+        this.outcomes = new float[chunkRows];
+        this.actions = new byte[chunkRows];
+    }
+
+    /**
+     * Shared writer for live games, recording into training.dat next to
+     * brain.json.
+     */
+    public static synchronized TrainingDatasetWriter getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new TrainingDatasetWriter(Path.of(FILE_PATH), 42, DEFAULT_CHUNK_ROWS);
+        }
+        return INSTANCE;
+    }
+
+    public int getFeatureCount() {
+        return featureCount;
+    }
+
+    public void append(float[] features, int action, float outcome) {
+        lock.lock();
+        try {
+            for (int f = 0; f < featureCount; f++) {
+                columns[f][rows] = f < features.length ? features[f] : 0f;
+            }
+            actions[rows] = (byte) action;
+            outcomes[rows] = outcome;
+            rows++;
+
+            if (rows == chunkRows) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the pending rows (if any) as a new chunk.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            writeChunk();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeChunk() {
+        if (rows == 0)
+            return;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                writeHeader(channel);
+            } else {
+                checkHeader(channel);
+            }
+
+            ByteBuffer chunk = ByteBuffer.allocate(chunkBytes(featureCount, rows)).order(ByteOrder.LITTLE_ENDIAN);
+            chunk.putInt(CHUNK_MAGIC);
+            chunk.putInt(rows);
+            for (int f = 0; f < featureCount; f++) {
+                float[] column = columns[f];
+                for (int r = 0; r < rows; r++) {
+                    chunk.putFloat(column[r]);
+                }
+            }
+            for (int r = 0; r < rows; r++) {
+                chunk.putFloat(outcomes[r]);
+            }
+            chunk.put(actions, 0, rows);
+            chunk.position(chunk.limit());
+            chunk.flip();
+
+            channel.position(channel.size());
+            while (chunk.hasRemaining()) {
+                channel.write(chunk);
+            }
+        } catch (IOException e) {
+            System.err.println("TrainingDatasetWriter: Failed to write chunk to " + path + "! " + e.getMessage());
+        }
+        rows = 0;
+    }
+
+    private void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(FORMAT_VERSION);
+        header.putInt(featureCount);
+        header.putInt(0); // Reserved
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    private void checkHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION
+                || header.getInt() != featureCount) {
+            throw new IOException("Existing file is not a compatible dataset (expected " + featureCount
+                    + " features)");
+        }
+    }
+
+    /**
+     * Size in bytes of a chunk holding the given number of rows.
+     */
+    public static int chunkBytes(int featureCount, int rows) {
+        int paddedActions = (rows + 3) & ~3;
+        return CHUNK_HEADER_BYTES + (featureCount + 1) * 4 * rows + paddedActions;
+    }
+}
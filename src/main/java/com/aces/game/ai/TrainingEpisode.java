@@ -0,0 +1,48 @@
+package com.aces.game.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decisions made during the current game. The outcome is only known once
+ * someone places their Ace, so rows are held here until the game ends and
+ * then handed to a {@link TrainingDatasetWriter}.
+ */
+public class TrainingEpisode {
+
+    private final List<float[]> features = new ArrayList<>();
+    private final List<String> playerIds = new ArrayList<>();
+    private final List<Integer> actions = new ArrayList<>();
+
+    public void record(String playerId, List<Double> inputs, int action) {
+        float[] row = new float[inputs.size()];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = inputs.get(i).floatValue();
+        }
+        features.add(row);
+        playerIds.add(playerId);
+        actions.add(action);
+    }
+
+    public int size() {
+        return features.size();
+    }
+
+    /**
+     * Writes every recorded decision with outcome 1.0 for the winner's
+     * decisions and 0.0 for everyone else's, then clears the episode.
+     */
+    public void finish(String winnerId, TrainingDatasetWriter writer) {
+        for (int i = 0; i < features.size(); i++) {
+            float outcome = playerIds.get(i).equals(winnerId) ? 1f : 0f;
+            writer.append(features.get(i), actions.get(i), outcome);
+        }
+        clear();
+    }
+
+    public void clear() {
+        features.clear();
+        playerIds.clear();
+        actions.clear();
+    }
+}
@@ -1,13 +1,24 @@
 package com.aces.game.domain;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 
-@Data
-@AllArgsConstructor
-@NoArgsConstructor
+/**
+ * A physical card. With several decks in play the same face appears more
+ * than once, so cards are told apart (equals, hashCode) by their id alone:
+ * the deck they come from and their place in it (see {@link #idOf}). Use
+ * {@link #isSameFace} to compare what is printed on them.
+ *
+ * Immutable: the cards of a shoe are shared instances (see {@link #ofId}).
+ */
+@Getter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Card {
+
+    public static final int DECK_SIZE = 54; // 52 + 2 Jokers
+    // Most decks in one shoe; the ids of all its cards fit in a byte
+    public static final int MAX_DECKS = 4;
+
     public enum Suit {
         HEARTS, DIAMONDS, CLUBS, SPADES, JOKER
     }
@@ -16,9 +27,68 @@ public class Card {
         TWO, THREE, FOUR, FIVE, SIX, SEVEN, EIGHT, NINE, TEN, JACK, QUEEN, KING, ACE, JOKER
     }
 
-    private Suit suit;
-    private Rank rank;
-    
+    // One shared instance per id of a full shoe, see ofId
+    private static final Card[] BY_ID = new Card[MAX_DECKS * DECK_SIZE];
+
+    static {
+        for (int id = 0; id < BY_ID.length; id++) {
+            BY_ID[id] = create(id);
+        }
+    }
+
+    private final Suit suit;
+    private final Rank rank;
+    @EqualsAndHashCode.Include
+    private final int id;
+
+    public Card(Suit suit, Rank rank, int id) {
+        this.suit = suit;
+        this.rank = rank;
+        this.id = id;
+    }
+
+    // The card's first copy in deck 0, e.g. for display
+    public Card(Suit suit, Rank rank) {
+        this(suit, rank, idOf(suit, rank, 0, 0));
+    }
+
+    /**
+     * Id of a card: deck * DECK_SIZE plus its place in one deck. jokerCopy
+     * (0 or 1) tells a deck's two Jokers apart.
+     */
+    public static int idOf(Suit suit, Rank rank, int deck, int jokerCopy) {
+        int face = (rank == Rank.JOKER) ? 52 + jokerCopy : suit.ordinal() * 13 + rank.ordinal();
+        return deck * DECK_SIZE + face;
+    }
+
+    /**
+     * The card with this id, see {@link #idOf}. Within MAX_DECKS this is one
+     * shared instance per id, so dealing a shoe allocates no cards.
+     */
+    public static Card ofId(int id) {
+        return (id >= 0 && id < BY_ID.length) ? BY_ID[id] : create(id);
+    }
+
+    private static Card create(int id) {
+        int face = id % DECK_SIZE;
+        if (face >= 52)
+            return new Card(Suit.JOKER, Rank.JOKER, id);
+        return new Card(Suit.values()[face / 13], Rank.values()[face % 13], id);
+    }
+
+    public int getDeck() {
+        return id / DECK_SIZE;
+    }
+
+    public boolean isSameFace(Card other) {
+        return other != null && suit == other.suit && rank == other.rank;
+    }
+
+    @Override
+    public String toString() {
+        return "Card(suit=" + suit + ", rank=" + rank + ", id=" + id + ")";
+    }
+
     // For CSS classes or display
     public String getDisplayString() {
         if (rank == Rank.JOKER) return "JOKER";
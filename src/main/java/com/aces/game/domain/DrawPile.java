@@ -0,0 +1,228 @@
+package com.aces.game.domain;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The draw pile: the top is the next card drawn and index 0 is the face-up
+ * bottom card.
+ *
+ * {@link #shuffleLazily} does not reorder the pile up front. It only picks
+ * the bottom card; the cards above it stay in no particular order (the
+ * unsettled range) and each one is chosen at random as it reaches the top,
+ * one Fisher-Yates step per draw. Cards pushed afterwards (e.g. the Queen's
+ * put-backs) sit above that range in their given order. Reading or
+ * replacing a card inside the range by position settles it first, finishing
+ * the shuffle, so the pile always behaves like a fully shuffled one.
+ *
+ * Like the rest of a GameState it is guarded by the game lock, or owned by
+ * one thread (simulations).
+ */
+public final class DrawPile {
+
+    private Card[] cards = new Card[64];
+    private int size;
+    // Cards at [lo, hi) are not in their final order yet
+    private int lo;
+    private int hi;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Puts the card on top. */
+    public void push(Card card) {
+        ensureCapacity(size + 1);
+        cards[size++] = card;
+    }
+
+    /** Puts the cards on top, the last one topmost. */
+    public void pushAll(Collection<Card> added) {
+        ensureCapacity(size + added.size());
+        for (Card c : added) {
+            cards[size++] = c;
+        }
+    }
+
+    /** Slides the card under the pile as its new bottom card. */
+    public void putBottom(Card card) {
+        ensureCapacity(size + 1);
+        System.arraycopy(cards, 0, cards, 1, size);
+        cards[0] = card;
+        size++;
+        if (lo < hi) {
+            lo++;
+            hi++;
+        }
+    }
+
+    /**
+     * Takes the top card.
+     *
+     * @throws java.util.EmptyStackException if the pile is empty
+     */
+    public Card pop() {
+        if (size == 0)
+            throw new java.util.EmptyStackException();
+        fixTop();
+        Card top = cards[--size];
+        cards[size] = null;
+        return top;
+    }
+
+    /** The card at index, 0 being the bottom. */
+    public Card get(int index) {
+        checkIndex(index);
+        beforeRead(index);
+        return cards[index];
+    }
+
+    /** Replaces the card at index, 0 being the bottom; returns the old one. */
+    public Card set(int index, Card card) {
+        checkIndex(index);
+        beforeRead(index);
+        Card old = cards[index];
+        cards[index] = card;
+        return old;
+    }
+
+    public void clear() {
+        Arrays.fill(cards, 0, size, null);
+        size = 0;
+        lo = 0;
+        hi = 0;
+    }
+
+    /**
+     * Shuffles the whole pile: picks a random bottom card now and the rest
+     * as they are drawn.
+     */
+    public void shuffleLazily() {
+        if (size == 0)
+            return;
+        swap(0, ThreadLocalRandom.current().nextInt(size));
+        lo = (size > 1) ? 1 : 0;
+        hi = (size > 1) ? size : 0;
+    }
+
+    /**
+     * Replaces this pile with the cards of another, including which of them
+     * are still unshuffled.
+     */
+    public void copyFrom(DrawPile other) {
+        ensureCapacity(other.size);
+        System.arraycopy(other.cards, 0, cards, 0, other.size);
+        if (other.size < size) {
+            Arrays.fill(cards, other.size, size, null);
+        }
+        size = other.size;
+        lo = other.lo;
+        hi = other.hi;
+    }
+
+    // --- Stored order, for GameStateCodec: no settling, range included ---
+
+    int unsettledFrom() {
+        return lo;
+    }
+
+    int unsettledTo() {
+        return hi;
+    }
+
+    Card rawGet(int index) {
+        checkIndex(index);
+        return cards[index];
+    }
+
+    void restore(List<Card> restored, int lo, int hi) {
+        if (lo == hi) {
+            lo = 0;
+            hi = 0;
+        }
+        if (lo < 0 || lo > hi || hi > restored.size())
+            throw new IllegalArgumentException("Bad unsettled range " + lo + ".." + hi);
+        clear();
+        pushAll(restored);
+        this.lo = lo;
+        this.hi = hi;
+    }
+
+    // Picks the top card from the unsettled range if it is still inside it
+    private void fixTop() {
+        int top = size - 1;
+        if (top >= lo && top < hi) {
+            swap(top, lo + ThreadLocalRandom.current().nextInt(top - lo + 1));
+            hi = top;
+            if (hi <= lo) {
+                lo = 0;
+                hi = 0;
+            }
+        }
+    }
+
+    // Before reading or replacing the card at index
+    private void beforeRead(int index) {
+        if (index >= lo && index < hi)
+            settle();
+    }
+
+    // Finishes the shuffle of the unsettled range
+    private void settle() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = Math.min(hi, size) - 1; i > lo; i--) {
+            swap(i, lo + random.nextInt(i - lo + 1));
+        }
+        lo = 0;
+        hi = 0;
+    }
+
+    private void swap(int i, int j) {
+        Card t = cards[i];
+        cards[i] = cards[j];
+        cards[j] = t;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > cards.length) {
+            cards = Arrays.copyOf(cards, Math.max(capacity, cards.length * 2));
+        }
+    }
+
+    // Same stored cards and unsettled range; reads nothing through the range
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof DrawPile other))
+            return false;
+        return size == other.size && lo == other.lo && hi == other.hi
+                && Arrays.equals(cards, 0, size, other.cards, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 31 * lo + hi;
+        for (int i = 0; i < size; i++) {
+            h = 31 * h + Objects.hashCode(cards[i]);
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "DrawPile(" + size + " cards, unsettled " + lo + ".." + hi + ")";
+    }
+}
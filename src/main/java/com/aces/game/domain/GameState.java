@@ -1,6 +1,8 @@
 package com.aces.game.domain;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -9,15 +11,26 @@ import java.util.Stack;
 @Data
 public class GameState {
     private List<Player> players = new ArrayList<>();
-    private java.util.Stack<Card> drawPile = new java.util.Stack<>();
+    // Player id to seat, see seatOf
+    @Getter(AccessLevel.NONE)
+    private final SeatIndex seatIndex = new SeatIndex();
+    private DrawPile drawPile = new DrawPile();
     private java.util.Stack<Card> discardPile = new java.util.Stack<>();
     private int currentPlayerIndex = 0;
-    private String gameMessage = "";
+    // Rendered only when read, see Message
+    private final Message gameMessage = new Message();
     private boolean gameOver = false;
     private Player winner;
     private int initialCpuCount = 1;
+    // Decks shuffled together into the draw pile (see Card ids)
+    private int deckCount = 1;
     private String initialPlayerName = "Player 1";
 
+    // Incremented on every change, so clients can tell which state they have
+    private long stateVersion = 0;
+    // Turns ended so far in this game
+    private int turnCount = 0;
+
     // --- New Fields for Advanced Rules ---
     public enum Phase {
         MENU,
@@ -57,7 +70,7 @@ public class GameState {
 
     // CPU Turn Animation Support
     private boolean cpuTurnPending = false;
-    private String lastAction = ""; // Describes what the last player did
+    private final Message lastAction = new Message(); // Describes what the last player did
 
     // Turn order mechanics
     private int playDirection = 1; // 1 = forward, -1 = reverse
@@ -100,6 +113,60 @@ public class GameState {
         this.bottomFacingCard = bottomFacingCard;
     }
 
+    public String getGameMessage() {
+        return gameMessage.text(this);
+    }
+
+    public void setGameMessage(String text) {
+        gameMessage.set(text);
+    }
+
+    public void setGameMessage(Message.Code code, Object arg) {
+        gameMessage.set(code, messageArg(code, 0, arg), Message.NONE);
+    }
+
+    public void setGameMessage(Message.Code code, Object first, Object second) {
+        gameMessage.set(code, messageArg(code, 0, first), messageArg(code, 1, second));
+    }
+
+    public String getLastAction() {
+        return lastAction.text(this);
+    }
+
+    public void setLastAction(String text) {
+        lastAction.set(text);
+    }
+
+    public void setLastAction(Message.Code code, Object arg) {
+        lastAction.set(code, messageArg(code, 0, arg), Message.NONE);
+    }
+
+    // For GameStateCodec, which writes messages as stored
+    Message gameMessage() {
+        return gameMessage;
+    }
+
+    Message lastAction() {
+        return lastAction;
+    }
+
+    // A message argument as Message stores it: the seat of a player in this
+    // game, a card's id, a rank's ordinal or a number
+    private int messageArg(Message.Code code, int index, Object value) {
+        if (value == null)
+            return Message.NONE;
+        switch (code.arg(index)) {
+            case PLAYER:
+                return seatOf(((Player) value).getId());
+            case CARD:
+                return ((Card) value).getId();
+            case RANK:
+                return ((Card.Rank) value).ordinal();
+            default:
+                return (Integer) value;
+        }
+    }
+
     public String getSevenTargetPlayerId() {
         return sevenTargetPlayerId;
     }
@@ -108,10 +175,109 @@ public class GameState {
         this.sevenTargetPlayerId = sevenTargetPlayerId;
     }
 
+    /**
+     * Independent copy of the whole table (players, piles, effect and turn
+     * state), e.g. for a CPU to play ahead on without touching the real game.
+     */
+    public GameState copy() {
+        GameState copy = new GameState();
+        copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Turns target into an independent copy of this table, like
+     * {@link #copy}, recycling its players and lists: they are cleared and
+     * refilled, keeping their storage, so copying into a reused state
+     * allocates nothing once it has grown to size.
+     */
+    public void copyInto(GameState target) {
+        List<Player> seats = target.players;
+        while (seats.size() > players.size()) {
+            seats.remove(seats.size() - 1);
+        }
+        boolean renamed = false;
+        target.winner = null;
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            Player pc;
+            if (i < seats.size()) {
+                pc = seats.get(i);
+                renamed |= !java.util.Objects.equals(pc.getId(), p.getId());
+            } else {
+                pc = new Player(p.getId(), p.getName(), p.isPc());
+                seats.add(pc);
+            }
+            p.copyInto(pc);
+            if (p == winner)
+                target.winner = pc;
+        }
+        if (renamed)
+            target.seatIndex.invalidate();
+        target.drawPile.copyFrom(drawPile);
+        copyCards(discardPile, target.discardPile);
+        copyCards(tempBuffer, target.tempBuffer);
+        target.currentPlayerIndex = currentPlayerIndex;
+        target.gameMessage.copyFrom(gameMessage);
+        target.gameOver = gameOver;
+        target.initialCpuCount = initialCpuCount;
+        target.deckCount = deckCount;
+        target.initialPlayerName = initialPlayerName;
+        target.stateVersion = stateVersion;
+        target.turnCount = turnCount;
+        target.phase = phase;
+        target.effectState = effectState;
+        target.pendingToasterPlayerId = pendingToasterPlayerId;
+        target.pendingEffectCard = pendingEffectCard;
+        target.effectSourceRank = effectSourceRank;
+        target.awaitingEffectChoice = awaitingEffectChoice;
+        target.effectType = effectType;
+        target.hasDrawn = hasDrawn;
+        target.hasDiscarded = hasDiscarded;
+        target.hasPlayedToStack = hasPlayedToStack;
+        target.cpuTurnPending = cpuTurnPending;
+        target.lastAction.copyFrom(lastAction);
+        target.playDirection = playDirection;
+        target.skipsRemaining = skipsRemaining;
+        target.eightTargetPlayerId = eightTargetPlayerId;
+        target.bottomFacingCard = bottomFacingCard;
+        target.sevenTargetPlayerId = sevenTargetPlayerId;
+        target.jokerPickCount = jokerPickCount;
+        target.jokerModeToStack = jokerModeToStack;
+    }
+
+    // Replaces to's cards with from's; clearing keeps to's storage, and
+    // indexing (instead of addAll) copies without a temporary array
+    static void copyCards(List<Card> from, List<Card> to) {
+        to.clear();
+        for (int i = 0; i < from.size(); i++) {
+            to.add(from.get(i));
+        }
+    }
+
     public Player getCurrentPlayer() {
         return players.get(currentPlayerIndex);
     }
 
+    /**
+     * Seat (index in players) of the player with this id, or -1. A table
+     * lookup, kept up to date with the seating.
+     */
+    public int seatOf(String playerId) {
+        return seatIndex.seatOf(players, playerId);
+    }
+
+    public Player findPlayer(String playerId) {
+        int seat = seatOf(playerId);
+        return (seat >= 0) ? players.get(seat) : null;
+    }
+
+    // First player seated as a human, or null
+    public Player findHuman() {
+        int seat = seatIndex.humanSeat(players);
+        return (seat >= 0) ? players.get(seat) : null;
+    }
+
     public void nextTurn() {
         // Handle skips
         int playersToAdvance = 1 + skipsRemaining;
@@ -123,7 +289,8 @@ public class GameState {
 
         hasDrawn = false;
         hasPlayedToStack = false;
-        gameMessage = "It's " + getCurrentPlayer().getName() + "'s turn.";
+        turnCount++;
+        gameMessage.set(Message.Code.TURN, currentPlayerIndex, Message.NONE);
     }
 
     public void reverseDirection() {
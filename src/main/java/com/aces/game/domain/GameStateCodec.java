@@ -0,0 +1,341 @@
+package com.aces.game.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact binary form of a {@link GameState}, e.g. to resume a live table
+ * after a restart. Cards are written as their id (one byte), players are
+ * referred to by seat, and counts as varints, so a table in play takes a few
+ * hundred bytes at most.
+ *
+ * Covered: players (hand, stack, discards, Joker value), all piles and the
+ * effect buffer (the draw pile in its stored order, unsettled range
+ * included), turn, direction and skips, and the effect state with its
+ * targets, and the game message and last action as their code and stored
+ * arguments. Brain versions are not written; they only mean something to
+ * the process that forked them.
+ */
+public final class GameStateCodec {
+
+    private static final int FORMAT = 2;
+    // Highest card id that fits in a byte next to "no card"
+    private static final int MAX_CARD_ID = 254;
+
+    private static final int GAME_OVER = 1;
+    private static final int HAS_DRAWN = 1 << 1;
+    private static final int HAS_DISCARDED = 1 << 2;
+    private static final int HAS_PLAYED_TO_STACK = 1 << 3;
+    private static final int CPU_TURN_PENDING = 1 << 4;
+    private static final int AWAITING_EFFECT_CHOICE = 1 << 5;
+    private static final int JOKER_MODE_TO_STACK = 1 << 6;
+    private static final int REVERSED = 1 << 7;
+
+    private GameStateCodec() {
+    }
+
+    public static byte[] encode(GameState game) {
+        Out out = new Out();
+        out.write(FORMAT);
+        out.varint(game.getStateVersion());
+        out.varint(game.getTurnCount());
+        out.write(game.getPhase().ordinal());
+        out.write(game.getEffectState().ordinal());
+        out.rank(game.getEffectSourceRank());
+        int flags = 0;
+        if (game.isGameOver())
+            flags |= GAME_OVER;
+        if (game.isHasDrawn())
+            flags |= HAS_DRAWN;
+        if (game.isHasDiscarded())
+            flags |= HAS_DISCARDED;
+        if (game.isHasPlayedToStack())
+            flags |= HAS_PLAYED_TO_STACK;
+        if (game.isCpuTurnPending())
+            flags |= CPU_TURN_PENDING;
+        if (game.isAwaitingEffectChoice())
+            flags |= AWAITING_EFFECT_CHOICE;
+        if (game.isJokerModeToStack())
+            flags |= JOKER_MODE_TO_STACK;
+        if (game.getPlayDirection() < 0)
+            flags |= REVERSED;
+        out.write(flags);
+        out.varint(game.getCurrentPlayerIndex());
+        out.varint(game.getSkipsRemaining());
+        out.varint(game.getJokerPickCount());
+        out.varint(game.getInitialCpuCount());
+        out.varint(game.getDeckCount());
+        out.string(game.getInitialPlayerName());
+        out.card(game.getBottomFacingCard());
+
+        List<Player> players = game.getPlayers();
+        out.varint(players.size());
+        for (Player p : players) {
+            out.string(p.getId());
+            out.string(p.getName());
+            out.write(p.isPc() ? 1 : 0);
+            out.rank(p.getJokerStackValue());
+            out.cards(p.getHand());
+            out.cards(p.getStack());
+            out.cards(p.getDiscardPile());
+        }
+        out.varint(seatOf(players, game.getWinner()) + 1);
+        out.varint(game.seatOf(game.getEightTargetPlayerId()) + 1);
+        out.varint(game.seatOf(game.getSevenTargetPlayerId()) + 1);
+        out.message(game.gameMessage());
+        out.message(game.lastAction());
+
+        DrawPile drawPile = game.getDrawPile();
+        out.varint(drawPile.size());
+        out.varint(drawPile.unsettledFrom());
+        out.varint(drawPile.unsettledTo());
+        for (int i = 0; i < drawPile.size(); i++) {
+            out.card(drawPile.rawGet(i));
+        }
+        out.cards(game.getDiscardPile());
+        out.cards(game.getTempBuffer());
+        return out.toByteArray();
+    }
+
+    private static int seatOf(List<Player> players, Player p) {
+        for (int i = 0; i < players.size(); i++) {
+            if (players.get(i) == p)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Reads a state written by {@link #encode}.
+     *
+     * @throws IllegalArgumentException if the data is not a complete state
+     */
+    public static GameState decode(byte[] data) {
+        try {
+            return read(new In(data));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated game state", e);
+        }
+    }
+
+    private static GameState read(In in) {
+        int format = in.read();
+        if (format != FORMAT)
+            throw new IllegalArgumentException("Unknown game state format " + format);
+        GameState game = new GameState();
+        game.setStateVersion(in.varint());
+        game.setTurnCount((int) in.varint());
+        game.setPhase(GameState.Phase.values()[in.read()]);
+        game.setEffectState(GameState.EffectState.values()[in.read()]);
+        game.setEffectSourceRank(in.rank());
+        int flags = in.read();
+        game.setGameOver((flags & GAME_OVER) != 0);
+        game.setHasDrawn((flags & HAS_DRAWN) != 0);
+        game.setHasDiscarded((flags & HAS_DISCARDED) != 0);
+        game.setHasPlayedToStack((flags & HAS_PLAYED_TO_STACK) != 0);
+        game.setCpuTurnPending((flags & CPU_TURN_PENDING) != 0);
+        game.setAwaitingEffectChoice((flags & AWAITING_EFFECT_CHOICE) != 0);
+        game.setJokerModeToStack((flags & JOKER_MODE_TO_STACK) != 0);
+        game.setPlayDirection((flags & REVERSED) != 0 ? -1 : 1);
+        int currentPlayerIndex = (int) in.varint();
+        game.setSkipsRemaining((int) in.varint());
+        game.setJokerPickCount((int) in.varint());
+        game.setInitialCpuCount((int) in.varint());
+        game.setDeckCount((int) in.varint());
+        game.setInitialPlayerName(in.string());
+        game.setBottomFacingCard(in.card());
+
+        int playerCount = (int) in.varint();
+        for (int i = 0; i < playerCount; i++) {
+            Player p = new Player(in.string(), in.string(), in.read() != 0);
+            p.setJokerStackValue(in.rank());
+            in.cards(p.getHand());
+            in.cards(p.getStack());
+            in.cards(p.getDiscardPile());
+            game.getPlayers().add(p);
+        }
+        if (playerCount > 0 && currentPlayerIndex >= playerCount)
+            throw new IllegalArgumentException("Bad current seat " + currentPlayerIndex);
+        game.setCurrentPlayerIndex(currentPlayerIndex);
+        Player winner = in.seat(game);
+        game.setWinner(winner);
+        Player eightTarget = in.seat(game);
+        game.setEightTargetPlayerId(eightTarget != null ? eightTarget.getId() : null);
+        Player sevenTarget = in.seat(game);
+        game.setSevenTargetPlayerId(sevenTarget != null ? sevenTarget.getId() : null);
+        in.message(game, game.gameMessage());
+        in.message(game, game.lastAction());
+
+        int drawSize = (int) in.varint();
+        int lo = (int) in.varint();
+        int hi = (int) in.varint();
+        if (drawSize > in.remaining())
+            throw new IndexOutOfBoundsException(drawSize);
+        List<Card> drawCards = new ArrayList<>(drawSize);
+        for (int i = 0; i < drawSize; i++) {
+            drawCards.add(in.card());
+        }
+        game.getDrawPile().restore(drawCards, lo, hi);
+        in.cards(game.getDiscardPile());
+        in.cards(game.getTempBuffer());
+        if (in.remaining() != 0)
+            throw new IllegalArgumentException(in.remaining() + " bytes after the game state");
+        return game;
+    }
+
+    private static final class Out {
+        private byte[] buf = new byte[256];
+        private int size;
+
+        void write(int b) {
+            if (size == buf.length)
+                buf = Arrays.copyOf(buf, size * 2);
+            buf[size++] = (byte) b;
+        }
+
+        void varint(long v) {
+            while ((v & ~0x7FL) != 0) {
+                write((int) (v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            write((int) v);
+        }
+
+        void string(String s) {
+            if (s == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            for (byte b : bytes) {
+                write(b);
+            }
+        }
+
+        void rank(Card.Rank rank) {
+            write(rank != null ? rank.ordinal() + 1 : 0);
+        }
+
+        void card(Card c) {
+            if (c == null) {
+                write(0);
+                return;
+            }
+            if (c.getId() < 0 || c.getId() > MAX_CARD_ID)
+                throw new IllegalArgumentException("Card id out of range: " + c.getId());
+            write(c.getId() + 1);
+        }
+
+        void cards(List<Card> cards) {
+            varint(cards.size());
+            for (Card c : cards) {
+                card(c);
+            }
+        }
+
+        // Code, then the text of a TEXT message or the stored arguments
+        void message(Message m) {
+            Message.Code code = m.getCode();
+            write(code.ordinal());
+            if (code == Message.Code.TEXT) {
+                string(m.getPlainText());
+                return;
+            }
+            for (int i = 0; i < code.argCount(); i++) {
+                varint(m.getArg(i) + 1);
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    private static final class In {
+        private final byte[] data;
+        private int pos;
+
+        In(byte[] data) {
+            this.data = data;
+        }
+
+        int read() {
+            return data[pos++] & 0xFF;
+        }
+
+        int remaining() {
+            return data.length - pos;
+        }
+
+        long varint() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return v;
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        String string() {
+            int length = (int) varint() - 1;
+            if (length < 0)
+                return null;
+            if (length > remaining())
+                throw new IndexOutOfBoundsException(length);
+            String s = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return s;
+        }
+
+        Card.Rank rank() {
+            int r = read();
+            return (r == 0) ? null : Card.Rank.values()[r - 1];
+        }
+
+        Card card() {
+            int id = read() - 1;
+            return (id >= 0) ? Card.ofId(id) : null;
+        }
+
+        void cards(List<Card> into) {
+            int count = (int) varint();
+            if (count > remaining())
+                throw new IndexOutOfBoundsException(count);
+            for (int i = 0; i < count; i++) {
+                into.add(card());
+            }
+        }
+
+        void message(GameState game, Message into) {
+            Message.Code code = Message.Code.values()[read()];
+            if (code == Message.Code.TEXT) {
+                into.set(string());
+                return;
+            }
+            int[] args = { Message.NONE, Message.NONE };
+            for (int i = 0; i < code.argCount(); i++) {
+                int value = (int) varint() - 1;
+                int limit = switch (code.arg(i)) {
+                    case PLAYER -> game.getPlayers().size();
+                    case CARD -> MAX_CARD_ID + 1;
+                    case RANK -> Card.Rank.values().length;
+                    case NUMBER -> Integer.MAX_VALUE;
+                };
+                if (value < Message.NONE || value >= limit)
+                    throw new IllegalArgumentException("Bad " + code + " argument " + value);
+                args[i] = value;
+            }
+            into.set(code, args[0], args[1]);
+        }
+
+        Player seat(GameState game) {
+            int seat = (int) varint() - 1;
+            return (seat >= 0) ? game.getPlayers().get(seat) : null;
+        }
+    }
+}
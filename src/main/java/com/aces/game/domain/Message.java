@@ -0,0 +1,178 @@
+package com.aces.game.domain;
+
+/**
+ * A game message kept as a code and the things it mentions, turned into
+ * text only when someone reads it. Setting one costs no string work, so the
+ * rules can describe every action even in games nobody watches.
+ *
+ * Arguments are stored as plain numbers, never as the objects themselves:
+ * players by seat, cards by id, ranks by ordinal (see {@link Arg}). They are
+ * looked up in the game when the message is rendered, so a copied or
+ * restored game keeps its messages without holding on to another game's
+ * players.
+ *
+ * Each set replaces one immutable entry behind a volatile reference, so a
+ * reader on another thread sees the code, its arguments and the cached text
+ * of the same message, never a mix of an old and a new one. Copies share
+ * entries, which is safe because a copy has the same seats.
+ */
+public final class Message {
+
+    /** How a message argument is stored and shown. */
+    public enum Arg {
+        PLAYER, // Seat, shown as the player's name
+        CARD, // Card id, shown as its display string
+        RANK, // Rank ordinal, shown as the rank
+        NUMBER // Shown as it is
+    }
+
+    public enum Code {
+        TEXT("{}"), // Free text, the only code without arguments
+        TURN("It's {}'s turn.", Arg.PLAYER),
+        DREW("You drew: {}", Arg.CARD),
+        CPU_DREW("{} drew a card.", Arg.PLAYER),
+        PLAYED_TO_STACK("Played {} to stack. Play another or Pass.", Arg.CARD),
+        WON("WINNER! {} placed the Ace!", Arg.PLAYER),
+        WON_VIA_JOKER("WINNER! {} placed the Ace via Joker!", Arg.PLAYER),
+        PASSED("{} passed turn.", Arg.PLAYER),
+        PASSED_NO_PLAY("{} passed turn (no play made).", Arg.PLAYER),
+        DISCARDED("Discarded {}.", Arg.CARD),
+        SKIPPED("FOUR! Skipped {} player(s).", Arg.NUMBER),
+        JOKER_PICK_INVALID("Invalid selection! {} does not fit your stack sequence.", Arg.CARD),
+        JOKER_TO_STACK("Recovered {} to STACK. Pick one more.", Arg.CARD),
+        JOKER_TO_HAND("Recovered {} to HAND.", Arg.CARD),
+        JOKER_VALUE("Joker is now acting as {}!", Arg.RANK),
+        EIGHT_CHOOSE("Choose: steal from {}'s Hand, Stack, or Discard?", Arg.PLAYER),
+        EIGHT_PICK("Pick a card from {}'s hand!", Arg.PLAYER),
+        EIGHT_PICK_TWO_PLAYER("Stealing from {}'s hand... pick a card!", Arg.PLAYER),
+        EIGHT_HAND_EMPTY("{}'s hand is empty!", Arg.PLAYER),
+        EIGHT_NO_HAND("{} has no cards in hand!", Arg.PLAYER),
+        EIGHT_STACK_TOO_SMALL("{} only has 1 card in stack! Cannot steal.", Arg.PLAYER),
+        EIGHT_TOOK("EIGHT! Took {} from {}!", Arg.CARD, Arg.PLAYER),
+        EIGHT_TOOK_FROM_STACK("EIGHT! Took {} from {}'s stack!", Arg.CARD, Arg.PLAYER),
+        EIGHT_TOOK_FROM_DISCARDS("EIGHT! Took {} from {}'s discard pile!", Arg.CARD, Arg.PLAYER),
+        SEVEN_PICK("Valid 7! Pick a card from YOUR hand to put on {}'s stack!", Arg.PLAYER),
+        SEVEN_PLACED("Placed {} on {}'s stack!", Arg.CARD, Arg.PLAYER),
+        TEN_TOOK("TEN! Took 3 cards from {}'s stack!", Arg.PLAYER),
+        TEN_TOO_SMALL("{}'s stack needs 4+ cards!", Arg.PLAYER);
+
+        private final String format;
+        private final Arg[] args;
+
+        Code(String format, Arg... args) {
+            this.format = format;
+            this.args = args;
+        }
+
+        public int argCount() {
+            return args.length;
+        }
+
+        public Arg arg(int index) {
+            return args[index];
+        }
+    }
+
+    // Stored for an argument that is not there (e.g. a null player)
+    static final int NONE = -1;
+
+    private static final class Entry {
+        final Code code;
+        final String plain; // TEXT only
+        final int first;
+        final int second;
+        // Rendered on first read; two readers may both render it, to the same text
+        private String text;
+
+        Entry(Code code, String plain, int first, int second) {
+            this.code = code;
+            this.plain = plain;
+            this.first = first;
+            this.second = second;
+        }
+
+        String text(GameState game) {
+            String rendered = text;
+            if (rendered == null) {
+                rendered = render(this, game);
+                text = rendered;
+            }
+            return rendered;
+        }
+    }
+
+    private volatile Entry entry = new Entry(Code.TEXT, null, NONE, NONE);
+
+    public void set(String text) {
+        entry = new Entry(Code.TEXT, text, NONE, NONE);
+    }
+
+    /**
+     * Sets a coded message; first and second are stored as its {@link Arg}s
+     * say, and unused ones are ignored.
+     */
+    public void set(Code code, int first, int second) {
+        if (code == Code.TEXT)
+            throw new IllegalArgumentException("TEXT takes a string");
+        entry = new Entry(code, null, first, second);
+    }
+
+    public void copyFrom(Message other) {
+        entry = other.entry;
+    }
+
+    public Code getCode() {
+        return entry.code;
+    }
+
+    /** The stored argument, see {@link Arg}; NONE if it is not there. */
+    public int getArg(int index) {
+        Entry e = entry;
+        return (index == 0) ? e.first : (index == 1) ? e.second : NONE;
+    }
+
+    /** The text of a TEXT message, otherwise null. */
+    public String getPlainText() {
+        return entry.plain;
+    }
+
+    /** The message as it reads in the given game (the one it belongs to). */
+    public String text(GameState game) {
+        return entry.text(game);
+    }
+
+    private static String render(Entry e, GameState game) {
+        if (e.code == Code.TEXT)
+            return e.plain;
+        String format = e.code.format;
+        StringBuilder sb = new StringBuilder(format.length() + 24);
+        int arg = 0;
+        int from = 0;
+        int at;
+        while ((at = format.indexOf("{}", from)) >= 0) {
+            sb.append(format, from, at);
+            int value = (arg == 0) ? e.first : e.second;
+            if (value != NONE || e.code.arg(arg) == Arg.NUMBER)
+                appendArg(sb, e.code.arg(arg), value, game);
+            arg++;
+            from = at + 2;
+        }
+        return sb.append(format, from, format.length()).toString();
+    }
+
+    private static void appendArg(StringBuilder sb, Arg kind, int value, GameState game) {
+        switch (kind) {
+            case PLAYER:
+                sb.append(game.getPlayers().get(value).getName());
+                break;
+            case CARD:
+                sb.append(Card.ofId(value).getDisplayString());
+                break;
+            case RANK:
+                sb.append(Card.Rank.values()[value]);
+                break;
+            default:
+                sb.append(value);
+        }
+    }
+}
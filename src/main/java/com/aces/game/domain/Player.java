@@ -18,8 +18,9 @@ public class Player {
     // When a Joker is on top of the stack, this stores what rank it represents
     private Card.Rank jokerStackValue = null;
 
-    // AI Brain removed - using GlobalAi
-    // private com.aces.game.ai.NeuralNetwork brain;
+    // Brain version in BrainRegistry (0 = GlobalAi). Each CPU gets its own
+    // version; unchanged layers are shared with the global brain.
+    private int brainVersion = 0;
 
     public Player(String id, String name, boolean isPc) {
         this.id = id;
@@ -30,6 +31,31 @@ public class Player {
         this.discardPile = new ArrayList<>();
     }
 
+    /**
+     * Copy with its own hand, stack and discard lists. Cards are shared; they
+     * are never changed once dealt.
+     */
+    public Player copy() {
+        Player copy = new Player(id, name, isPc);
+        copyInto(copy);
+        return copy;
+    }
+
+    /**
+     * Turns target into a copy of this player, keeping its lists (and their
+     * storage) so a recycled player takes no new allocations.
+     */
+    public void copyInto(Player target) {
+        target.id = id;
+        target.name = name;
+        target.isPc = isPc;
+        GameState.copyCards(hand, target.hand);
+        GameState.copyCards(stack, target.stack);
+        GameState.copyCards(discardPile, target.discardPile);
+        target.jokerStackValue = jokerStackValue;
+        target.brainVersion = brainVersion;
+    }
+
     public Card getLastDiscard() {
         if (discardPile.isEmpty())
             return null;
@@ -0,0 +1,80 @@
+package com.aces.game.domain;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Player id to seat lookup for one game, built from its seating the first
+ * time it is needed and again whenever the seating has changed. Lookups may
+ * come from request threads outside the game lock, so each build is a new
+ * snapshot that is never modified.
+ */
+final class SeatIndex {
+
+    private record Table(Player[] seats, Map<String, Integer> byId, int humanSeat) {
+    }
+
+    private static final Table EMPTY = new Table(new Player[0], Map.of(), -1);
+
+    private volatile Table table = EMPTY;
+
+    int seatOf(List<Player> players, String playerId) {
+        if (playerId == null)
+            return -1;
+        Table t = table;
+        Integer seat = t.byId().get(playerId);
+        if (seat != null && isCurrent(t, players, seat))
+            return seat;
+        if (seat == null && !isStale(t, players))
+            return -1;
+
+        t = rebuild(players);
+        seat = t.byId().get(playerId);
+        return (seat != null) ? seat : -1;
+    }
+
+    // Forgets the seating, e.g. after the same players were given other ids
+    void invalidate() {
+        table = EMPTY;
+    }
+
+    // First seat played by a human, or -1
+    int humanSeat(List<Player> players) {
+        Table t = table;
+        int seat = t.humanSeat();
+        if (seat >= 0 && isCurrent(t, players, seat) && players.get(seat).isPc())
+            return seat;
+        if (seat < 0 && !isStale(t, players))
+            return -1;
+        return rebuild(players).humanSeat();
+    }
+
+    private static boolean isCurrent(Table t, List<Player> players, int seat) {
+        return t.seats().length == players.size() && players.get(seat) == t.seats()[seat];
+    }
+
+    private static boolean isStale(Table t, List<Player> players) {
+        if (t.seats().length != players.size())
+            return true;
+        for (int i = 0; i < t.seats().length; i++) {
+            if (players.get(i) != t.seats()[i])
+                return true;
+        }
+        return false;
+    }
+
+    private Table rebuild(List<Player> players) {
+        Player[] seats = players.toArray(new Player[0]);
+        Map<String, Integer> byId = new HashMap<>(seats.length * 2);
+        int humanSeat = -1;
+        for (int i = 0; i < seats.length; i++) {
+            byId.putIfAbsent(seats[i].getId(), i);
+            if (humanSeat < 0 && seats[i].isPc())
+                humanSeat = i;
+        }
+        Table t = new Table(seats, byId, humanSeat);
+        table = t;
+        return t;
+    }
+}
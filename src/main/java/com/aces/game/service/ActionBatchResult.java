@@ -0,0 +1,10 @@
+package com.aces.game.service;
+
+/**
+ * Outcome of {@link GameService#applyActions}. A batch is kept whole or not
+ * at all: either every action was applied (applied = their count,
+ * rejectedIndex -1) or none was (applied 0, rejectedIndex the action that
+ * was rejected, message why).
+ */
+public record ActionBatchResult(int applied, int rejectedIndex, String message) {
+}
@@ -0,0 +1,88 @@
+package com.aces.game.service;
+
+import com.aces.game.domain.Card;
+import com.aces.game.domain.GameState;
+
+/**
+ * Compact int encoding of a move, as filled in by
+ * {@link GameService#legalActions(int[])}: the kind in the high bits and one
+ * small argument in the low bits.
+ *
+ * PLAY and DISCARD take a hand index, PICK an index into the effect buffer or
+ * a hand (Queen, Joker, Seven and Eight picks), TARGET a seat, SOURCE one of
+ * hand/stack/discard (0-2), MODE one of STACK/HAND (0-1) and RANK a
+ * {@link Card.Rank} ordinal. DRAW and SKIP take none.
+ */
+public final class ActionCodes {
+
+    public static final int DRAW = 0;
+    public static final int PLAY = 1;
+    public static final int DISCARD = 2;
+    public static final int SKIP = 3;
+    public static final int PICK = 4;
+    public static final int TARGET = 5;
+    public static final int SOURCE = 6;
+    public static final int MODE = 7;
+    public static final int RANK = 8;
+
+    /** Room for the moves of nearly any position; legalActions reports more if there are. */
+    public static final int MAX_ACTIONS = 512;
+
+    static final String[] SOURCES = { "hand", "stack", "discard" };
+    static final String[] MODES = { "STACK", "HAND" };
+
+    // A Joker pick indexes a player's whole discard history, which can run
+    // into the hundreds
+    private static final int ARG_BITS = 12;
+    private static final int ARG_MASK = (1 << ARG_BITS) - 1;
+    static final int MAX_ARG = ARG_MASK;
+
+    private ActionCodes() {
+    }
+
+    public static int encode(int kind, int arg) {
+        return (kind << ARG_BITS) | (arg & ARG_MASK);
+    }
+
+    public static int kind(int code) {
+        return code >>> ARG_BITS;
+    }
+
+    public static int arg(int code) {
+        return code & ARG_MASK;
+    }
+
+    /**
+     * The same move as a {@link GameAction}, e.g. for
+     * {@link GameService#applyActions}. Seats are resolved against the game.
+     */
+    public static GameAction toGameAction(int code, GameState game) {
+        int arg = arg(code);
+        switch (kind(code)) {
+            case DRAW:
+                return new GameAction(GameAction.DRAW, null, null);
+            case PLAY:
+                return new GameAction(GameAction.PLAY, arg, null);
+            case DISCARD:
+                return new GameAction(GameAction.DISCARD, arg, null);
+            case SKIP:
+                return new GameAction(GameAction.SKIP, null, null);
+            case PICK:
+                return effect(String.valueOf(arg));
+            case TARGET:
+                return effect(game.getPlayers().get(arg).getId());
+            case SOURCE:
+                return effect(SOURCES[arg]);
+            case MODE:
+                return effect(MODES[arg]);
+            case RANK:
+                return effect(Card.Rank.values()[arg].name());
+            default:
+                throw new IllegalArgumentException("Unknown action code: " + code);
+        }
+    }
+
+    private static GameAction effect(String data) {
+        return new GameAction(GameAction.EFFECT, null, data);
+    }
+}
@@ -0,0 +1,12 @@
+package com.aces.game.service;
+
+/**
+ * One CPU step in a timeline returned by {@link GameService#runCpuTurns()}.
+ *
+ * at is the offset (ms) from the start of the timeline at which the client
+ * should show this step; the server computes the whole sequence at once and
+ * leaves the pacing to the client.
+ */
+public record CpuStep(int seq, long at, String playerId, String playerName, String action, String message,
+        long version) {
+}
@@ -0,0 +1,16 @@
+package com.aces.game.service;
+
+/**
+ * One player action in a batch for {@link GameService#applyActions}.
+ *
+ * type is one of draw, play, discard, effect, skip. play and discard use
+ * cardIndex; effect uses data (the same actionData as /game/effect).
+ */
+public record GameAction(String type, Integer cardIndex, String data) {
+
+    public static final String DRAW = "draw";
+    public static final String PLAY = "play";
+    public static final String DISCARD = "discard";
+    public static final String EFFECT = "effect";
+    public static final String SKIP = "skip";
+}
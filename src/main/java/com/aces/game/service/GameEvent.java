@@ -0,0 +1,17 @@
+package com.aces.game.service;
+
+import com.aces.game.domain.GameState;
+
+/**
+ * Something that happened in a game, delivered to {@link GameEventListener}s
+ * on the thread that caused it, right after the change.
+ *
+ * detail depends on the type: the DecisionSnapshot for AI events, the
+ * {@link CpuStep} for CPU steps, null otherwise.
+ */
+public record GameEvent(String type, GameState game, Object detail) {
+
+    public static final String STATE = "state"; // Any change (stateVersion was bumped)
+    public static final String CPU_STEP = "cpu-step"; // A CPU finished one step of its turn
+    public static final String AI = "ai"; // A CPU's brain made a decision
+}
@@ -0,0 +1,6 @@
+package com.aces.game.service;
+
+@FunctionalInterface
+public interface GameEventListener {
+    void onGameEvent(GameEvent event);
+}
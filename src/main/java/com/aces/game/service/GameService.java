@@ -1,11 +1,17 @@
 package com.aces.game.service;
 
 import com.aces.game.domain.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 @Service
 public class GameService {
@@ -15,57 +21,225 @@ public class GameService {
     // initialCpuCount is stored in GameState effectively, but we can keep a default
     // here if needed.
 
+    // How far each CPU's brain drifts from the global brain at game start
+    private static final double PERSONALITY_MUTATION_RATE = 0.1;
+    private static final double PERSONALITY_MUTATION_STRENGTH = 0.05;
+
+    // Safety cap on CPU steps run back to back, and how far apart the client
+    // should show them
+    private static final int MAX_CPU_STEPS = 200;
+    private static final long CPU_STEP_PACE_MS = 1200;
+
+    // Table sizes with rules of their own; larger tables play the 5-player rules
+    private static final int MIN_RULE_PLAYERS = 2;
+    private static final int MAX_RULE_PLAYERS = 5;
+
+    // CPU decisions of the current game, written to the dataset once it is won
+    private final com.aces.game.ai.TrainingEpisode trainingEpisode = new com.aces.game.ai.TrainingEpisode();
+    // Set while applyActions runs: a win it causes is only recorded once the
+    // batch is kept (see recordOutcome)
+    private boolean batchOpen;
+    private Player batchWinner;
+
+    // Each CPU's last brain decision, read by the AI visualizer
+    private final Map<String, com.aces.game.ai.DecisionSnapshot> lastDecisions = new ConcurrentHashMap<>();
+
+    private final List<GameEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Guards every change to the game; held across a whole batch of actions.
+    // Listeners are called with it held, right after the change.
+    private final ReentrantLock gameLock = new ReentrantLock();
+
+    // Brain inputs for every seat, updated as cards move (see cardsMoved)
+    private final com.aces.game.ai.FeatureTable features = new com.aces.game.ai.FeatureTable();
+    // Rows reused by every playout decision of a simulation instance
+    private final double[] featureRow = new double[com.aces.game.ai.FeatureTable.INPUT_SIZE];
+    private final double[] outputRow = new double[com.aces.game.ai.GlobalAi.OUTPUT_SIZE];
+    // Legal moves handed to the search
+    private final int[] legalRow = new int[ActionCodes.MAX_ACTIONS];
+
+    // What each effect state does with the player's choice (see doEffect)
+    private final Map<GameState.EffectState, EffectStep> effectSteps = effectSteps();
+    // What discarding each rank does, one table per table size so rules that
+    // depend on the player count are picked once here, not on every discard
+    private final List<Map<Card.Rank, CardEffect>> cardEffects = cardEffectTables();
+
+    // CPU move selection: "nn" (brain picks a kind of move, heuristics pick
+    // the card) or "mcts" (tree search over the actual moves, see MctsPlanner)
+    @Value("${aces.cpu.mode:nn}")
+    private String cpuMode = "nn";
+    @Value("${aces.mcts.time-ms:150}")
+    private long mctsTimeMs = 150;
+    @Value("${aces.mcts.max-nodes:20000}")
+    private int mctsMaxNodes = 20000;
+    @Value("${aces.mcts.threads:0}")
+    private int mctsThreads = 0;
+    // Decks in the shoe; 0 picks by table size (see decksFor)
+    @Value("${aces.decks:0}")
+    private int decks = 0;
+    private MctsPlanner mctsPlanner;
+
+    // Set on the copies MctsPlanner plays ahead on: no events, no training
+    // data, and brains are private copies so search threads never share one
+    private final boolean simulation;
+    private final Map<Integer, com.aces.game.ai.NeuralNetwork> simBrains;
+
+    public GameService() {
+        this.simulation = false;
+        this.simBrains = null;
+    }
+
+    // Simulation instance; each brain is copied into simBrains on first use
+    GameService(Map<Integer, com.aces.game.ai.NeuralNetwork> simBrains) {
+        this.simulation = true;
+        this.simBrains = simBrains;
+    }
+
     @jakarta.annotation.PreDestroy
     public void onExit() {
+        if (mctsPlanner != null) {
+            mctsPlanner.shutdown();
+        }
         System.out.println("GameService: Saving AI Brain on Shutdown...");
         com.aces.game.ai.GlobalAi.save();
+        com.aces.game.ai.TrainingDatasetWriter.getInstance().flush();
     }
 
     public GameState getGame() {
         return defaultGame;
     }
 
-    public void startGame(String playerName, int cpuCount) {
-        defaultGame = new GameState();
-        defaultGame.setInitialCpuCount(cpuCount);
-        defaultGame.setPhase(GameState.Phase.PLAYING);
-        defaultGame.setInitialPlayerName(playerName);
-
-        // Create Deck
-        initializeDeck(defaultGame);
+    /**
+     * Reads the game while holding the game lock, so no action is applied
+     * half way through.
+     */
+    public <T> T withGame(Function<GameState, T> reader) {
+        gameLock.lock();
+        try {
+            return reader.apply(defaultGame);
+        } finally {
+            gameLock.unlock();
+        }
+    }
 
-        // Human Player
-        Player p1 = new Player("p1", playerName != null ? playerName : "You", true);
-        defaultGame.getPlayers().add(p1);
+    public void addListener(GameEventListener listener) {
+        listeners.add(listener);
+    }
 
-        // CPU Names Pool
-        String[] cpuNames = { "Alice", "Bob", "Charlie", "David", "Eve", "Frank" };
+    public void removeListener(GameEventListener listener) {
+        listeners.remove(listener);
+    }
 
-        // CPU Players
-        for (int i = 0; i < cpuCount; i++) {
-            String name = (i < cpuNames.length) ? cpuNames[i] : "CPU " + (i + 1);
-            Player cpu = new Player("cpu" + (i + 1), name, false);
-            defaultGame.getPlayers().add(cpu);
+    private void publish(String type, Object detail) {
+        if (listeners.isEmpty())
+            return;
+        GameEvent event = new GameEvent(type, defaultGame, detail);
+        for (GameEventListener l : listeners) {
+            try {
+                l.onGameEvent(event);
+            } catch (Exception e) {
+                System.err.println("GameService: Listener failed on " + type + ": " + e.getMessage());
+            }
         }
+    }
 
-        // Deal 1 card to stack, 0 to hand
-        // Rule: If starting card is Ace or Joker, draw a new one
-        for (Player p : defaultGame.getPlayers()) {
-            if (!defaultGame.getDrawPile().isEmpty()) {
-                Card startCard = defaultGame.getDrawPile().pop();
-                // Keep drawing until we get a valid starting card
-                while ((startCard.getRank() == Card.Rank.ACE || startCard.getRank() == Card.Rank.JOKER)
-                        && !defaultGame.getDrawPile().isEmpty()) {
-                    // Put invalid card at bottom of deck
-                    defaultGame.getDrawPile().add(0, startCard);
-                    startCard = defaultGame.getDrawPile().pop();
+    // Bumps the state version and tells listeners
+    private void changed() {
+        if (defaultGame == null)
+            return;
+        defaultGame.setStateVersion(defaultGame.getStateVersion() + 1);
+        publish(GameEvent.STATE, null);
+    }
+
+    /**
+     * The given CPU's most recent decision, or null if it has not decided yet.
+     */
+    public com.aces.game.ai.DecisionSnapshot getLastDecision(String playerId) {
+        return lastDecisions.get(playerId);
+    }
+
+    public void startGame(String playerName, int cpuCount) {
+        gameLock.lock();
+        try {
+            // An unfinished game has no outcome to learn from
+            trainingEpisode.clear();
+            releaseBrains();
+            lastDecisions.clear();
+
+            // Versions keep counting across games so clients never see one go back
+            long version = (defaultGame != null) ? defaultGame.getStateVersion() : 0;
+            defaultGame = new GameState();
+            defaultGame.setStateVersion(version);
+            defaultGame.setInitialCpuCount(cpuCount);
+            defaultGame.setPhase(GameState.Phase.PLAYING);
+            defaultGame.setInitialPlayerName(playerName);
+
+            // Create Deck
+            initializeDeck(defaultGame, decksFor(cpuCount + 1));
+
+            // Human Player
+            Player p1 = new Player("p1", playerName != null ? playerName : "You", true);
+            defaultGame.getPlayers().add(p1);
+
+            // CPU Names Pool
+            String[] cpuNames = { "Alice", "Bob", "Charlie", "David", "Eve", "Frank" };
+
+            // CPU Players
+            for (int i = 0; i < cpuCount; i++) {
+                String name = (i < cpuNames.length) ? cpuNames[i] : "CPU " + (i + 1);
+                Player cpu = new Player("cpu" + (i + 1), name, false);
+                // Give each CPU its own personality derived from the global brain
+                cpu.setBrainVersion(com.aces.game.ai.BrainRegistry.fork(com.aces.game.ai.BrainRegistry.ROOT_VERSION,
+                        PERSONALITY_MUTATION_RATE, PERSONALITY_MUTATION_STRENGTH));
+                defaultGame.getPlayers().add(cpu);
+            }
+
+            // Deal 1 card to stack, 0 to hand
+            // Rule: If starting card is Ace or Joker, draw a new one
+            for (Player p : defaultGame.getPlayers()) {
+                if (!defaultGame.getDrawPile().isEmpty()) {
+                    Card startCard = defaultGame.getDrawPile().pop();
+                    // Keep drawing until we get a valid starting card
+                    while ((startCard.getRank() == Card.Rank.ACE || startCard.getRank() == Card.Rank.JOKER)
+                            && !defaultGame.getDrawPile().isEmpty()) {
+                        // Put invalid card at bottom of deck
+                        defaultGame.getDrawPile().putBottom(startCard);
+                        startCard = defaultGame.getDrawPile().pop();
+                    }
+                    p.getStack().add(startCard);
                 }
-                p.getStack().add(startCard);
             }
-        }
 
-        defaultGame.setGameMessage("Game Started! Draw a card to begin.");
+            features.reset(defaultGame);
+            defaultGame.setGameMessage("Game Started! Draw a card to begin.");
+            changed();
+        } finally {
+            gameLock.unlock();
+        }
+    }
 
+    /**
+     * Resumes a saved game, e.g. one {@link TableSnapshotStore} kept across a
+     * restart. Brains are not saved, so each CPU gets a new personality.
+     */
+    public void restoreGame(GameState saved) {
+        gameLock.lock();
+        try {
+            trainingEpisode.clear();
+            releaseBrains();
+            lastDecisions.clear();
+            for (Player p : saved.getPlayers()) {
+                if (!p.isPc()) {
+                    p.setBrainVersion(com.aces.game.ai.BrainRegistry.fork(com.aces.game.ai.BrainRegistry.ROOT_VERSION,
+                            PERSONALITY_MUTATION_RATE, PERSONALITY_MUTATION_STRENGTH));
+                }
+            }
+            defaultGame = saved;
+            features.reset(saved);
+            changed();
+        } finally {
+            gameLock.unlock();
+        }
     }
 
     // Default start (for restart button or testing) - reuse count and name
@@ -76,39 +250,61 @@ public class GameService {
     }
 
     public void resetToMenu() {
-        if (defaultGame != null) {
-            defaultGame.setPhase(GameState.Phase.MENU);
-            defaultGame.getPlayers().clear();
-            defaultGame.getDrawPile().clear();
-            defaultGame.getDiscardPile().clear();
+        gameLock.lock();
+        try {
+            if (defaultGame != null) {
+                releaseBrains();
+                defaultGame.setPhase(GameState.Phase.MENU);
+                defaultGame.getPlayers().clear();
+                defaultGame.getDrawPile().clear();
+                defaultGame.getDiscardPile().clear();
+                features.reset(defaultGame);
+                changed();
+            }
+        } finally {
+            gameLock.unlock();
         }
     }
 
-    private void initializeDeck(GameState game) {
-        game.getDrawPile().clear();
+    private void releaseBrains() {
+        if (defaultGame == null)
+            return;
+        for (Player p : defaultGame.getPlayers()) {
+            com.aces.game.ai.BrainRegistry.release(p.getBrainVersion());
+            p.setBrainVersion(com.aces.game.ai.BrainRegistry.ROOT_VERSION);
+        }
+    }
 
-        // Standard 54-card deck: 52 cards (4 suits × 13 ranks) + 2 Jokers
+    // Configured deck count, or 1 deck for up to 2 players, 2 for up to 5
+    // and 3 beyond that; never more than Card.MAX_DECKS
+    private int decksFor(int playerCount) {
+        int n = (decks > 0) ? decks : (playerCount <= 2) ? 1 : (playerCount <= 5) ? 2 : 3;
+        return Math.min(n, Card.MAX_DECKS);
+    }
 
-        // Add all 52 standard cards (one of each)
-        for (Card.Suit suit : Card.Suit.values()) {
-            if (suit == Card.Suit.JOKER)
-                continue; // Skip joker suit
-            for (Card.Rank rank : Card.Rank.values()) {
-                if (rank == Card.Rank.JOKER)
-                    continue; // Skip joker rank
-                game.getDrawPile().add(new Card(suit, rank));
+    private void initializeDeck(GameState game, int deckCount) {
+        game.getDrawPile().clear();
+        game.setDeckCount(deckCount);
+
+        // Each deck: 52 cards (4 suits × 13 ranks) + 2 Jokers, with ids
+        // unique across the whole shoe
+        for (int deck = 0; deck < deckCount; deck++) {
+            for (Card.Suit suit : Card.Suit.values()) {
+                if (suit == Card.Suit.JOKER)
+                    continue; // Skip joker suit
+                for (Card.Rank rank : Card.Rank.values()) {
+                    if (rank == Card.Rank.JOKER)
+                        continue; // Skip joker rank
+                    game.getDrawPile().push(Card.ofId(Card.idOf(suit, rank, deck, 0)));
+                }
+            }
+            for (int copy = 0; copy < 2; copy++) {
+                game.getDrawPile().push(Card.ofId(Card.idOf(Card.Suit.JOKER, Card.Rank.JOKER, deck, copy)));
             }
         }
 
-        // Add exactly 2 Jokers
-        game.getDrawPile().add(new Card(Card.Suit.JOKER, Card.Rank.JOKER));
-        game.getDrawPile().add(new Card(Card.Suit.JOKER, Card.Rank.JOKER));
-
-        // Shuffle the deck
-        // Total: 52 + 2 = 54 cards
-
         // Shuffle the deck
-        Collections.shuffle(game.getDrawPile());
+        game.getDrawPile().shuffleLazily();
 
         // Set bottom facing card (the LAST card in the list relative to pop? Stack pop
         // is last.
@@ -125,34 +321,46 @@ public class GameService {
     public void reshuffleDeck() {
         if (!defaultGame.getDiscardPile().isEmpty()) {
             defaultGame.setGameMessage("Reshuffling discards...");
-            System.out.println("Reshuffling deck...");
+            if (!simulation)
+                System.out.println("Reshuffling deck...");
 
             // Move discard to draw
-            defaultGame.getDrawPile().addAll(defaultGame.getDiscardPile());
+            defaultGame.getDrawPile().pushAll(defaultGame.getDiscardPile());
             defaultGame.getDiscardPile().clear();
-            Collections.shuffle(defaultGame.getDrawPile());
+            defaultGame.getDrawPile().shuffleLazily();
 
             if (!defaultGame.getDrawPile().isEmpty()) {
                 defaultGame.setBottomFacingCard(defaultGame.getDrawPile().get(0));
             }
+            features.pilesChanged(defaultGame);
         }
     }
 
     public void drawCard(String playerId) {
+        gameLock.lock();
+        try {
+            doDrawCard(playerId);
+            changed();
+        } finally {
+            gameLock.unlock();
+        }
+    }
+
+    private boolean doDrawCard(String playerId) {
         Player p = defaultGame.getCurrentPlayer();
         if (!p.getId().equals(playerId)) {
-            return;
+            return false;
         }
 
         // BLOCK: Cannot draw if handling an effect
         if (defaultGame.getEffectState() != GameState.EffectState.NONE) {
             defaultGame.setGameMessage("Finish the current action first!");
-            return;
+            return false;
         }
 
         if (defaultGame.isHasDrawn()) {
             defaultGame.setGameMessage("You have already drawn a card this turn!");
-            return;
+            return false;
         }
 
         if (defaultGame.getDrawPile().isEmpty()) {
@@ -161,19 +369,32 @@ public class GameService {
 
         if (defaultGame.getDrawPile().isEmpty()) {
             defaultGame.setGameMessage("Deck empty and no discards to shuffle!");
-            return;
+            return false;
         }
 
         Card drawn = defaultGame.getDrawPile().pop();
         p.getHand().add(drawn);
+        cardsMoved(p);
         defaultGame.setHasDrawn(true);
-        defaultGame.setGameMessage("You drew: " + drawn.getDisplayString());
+        defaultGame.setGameMessage(Message.Code.DREW, drawn);
+        return true;
     }
 
     /**
      * Draw a card and return it for animation purposes
      */
     public Card drawCardAndReturn(String playerId) {
+        gameLock.lock();
+        try {
+            Card drawn = doDrawCardAndReturn(playerId);
+            changed();
+            return drawn;
+        } finally {
+            gameLock.unlock();
+        }
+    }
+
+    private Card doDrawCardAndReturn(String playerId) {
         Player p = defaultGame.getCurrentPlayer();
         if (!p.getId().equals(playerId)) {
             return null;
@@ -193,41 +414,42 @@ public class GameService {
 
         Card drawn = defaultGame.getDrawPile().pop();
         p.getHand().add(drawn);
+        cardsMoved(p);
         defaultGame.setHasDrawn(true);
-        defaultGame.setGameMessage("You drew: " + drawn.getDisplayString());
+        defaultGame.setGameMessage(Message.Code.DREW, drawn);
         return drawn;
     }
 
     public void playToStack(String playerId, int cardIndex) {
+        gameLock.lock();
+        try {
+            doPlayToStack(playerId, cardIndex);
+            changed();
+        } finally {
+            gameLock.unlock();
+        }
+    }
+
+    private boolean doPlayToStack(String playerId, int cardIndex) {
         Player p = defaultGame.getCurrentPlayer();
         if (!p.getId().equals(playerId))
-            return;
+            return false;
 
         // BLOCK: Cannot play if handling an effect
         if (defaultGame.getEffectState() != GameState.EffectState.NONE) {
             defaultGame.setGameMessage("Finish the current action first!");
-            return;
+            return false;
         }
 
         if (cardIndex < 0 || cardIndex >= p.getHand().size())
-            return;
+            return false;
 
         Card card = p.getHand().get(cardIndex);
 
-        // Validation Logic
-        boolean isValid = false;
-        Card top = p.getTopStack();
-
-        if (top == null) {
-            // Cannot start stack with a Joker or Ace
-            isValid = (card.getRank() != Card.Rank.JOKER && card.getRank() != Card.Rank.ACE);
-        } else {
-            isValid = isSequenceValid(p, top, card);
-        }
-
-        if (isValid) {
+        if (canStack(p, card)) {
             p.getHand().remove(cardIndex);
             p.getStack().add(card);
+            cardsMoved(p);
             defaultGame.setHasPlayedToStack(true);
 
             // If playing a Joker, need to choose what value it represents
@@ -237,7 +459,7 @@ public class GameService {
                 defaultGame.setGameMessage(
                         "Joker played! Choose what rank it represents (3-10, Q only - not 2, A, or K).");
                 // Don't end turn yet - wait for value selection
-                return;
+                return true;
             }
 
             // Clear jokerStackValue when a regular card is played
@@ -247,15 +469,27 @@ public class GameService {
             if (card.getRank() == Card.Rank.ACE) {
                 defaultGame.setGameOver(true);
                 defaultGame.setWinner(p);
-                defaultGame.setGameMessage("WINNER! " + p.getName() + " placed the Ace!");
-                return;
+                recordOutcome(p);
+                defaultGame.setGameMessage(Message.Code.WON, p);
+                return true;
             }
 
-            defaultGame.setGameMessage("Played " + card.getDisplayString() + " to stack. Play another or Pass.");
+            defaultGame.setGameMessage(Message.Code.PLAYED_TO_STACK, card);
             // endTurn(); // Removed to allow multiple card plays
+            return true;
         } else {
             defaultGame.setGameMessage("Invalid move! Must be sequential (+/- 1).");
+            return false;
+        }
+    }
+
+    private boolean canStack(Player p, Card card) {
+        Card top = p.getTopStack();
+        if (top == null) {
+            // Cannot start stack with a Joker or Ace
+            return card.getRank() != Card.Rank.JOKER && card.getRank() != Card.Rank.ACE;
         }
+        return isSequenceValid(p, top, card);
     }
 
     private boolean isSequenceValid(Player p, Card top, Card card) {
@@ -321,624 +555,776 @@ public class GameService {
     }
 
     public void skipTurn(String playerId) {
+        gameLock.lock();
+        try {
+            doSkipTurn(playerId);
+            changed();
+        } finally {
+            gameLock.unlock();
+        }
+    }
+
+    private boolean doSkipTurn(String playerId) {
         Player p = defaultGame.getCurrentPlayer();
         if (!p.getId().equals(playerId)) {
-            return;
+            return false;
         }
 
         if (!defaultGame.isHasDrawn()) {
             defaultGame.setGameMessage("You must draw a card before passing!");
-            return;
+            return false;
         }
 
         if (defaultGame.isHasPlayedToStack()) {
-            defaultGame.setGameMessage(p.getName() + " passed turn.");
+            defaultGame.setGameMessage(Message.Code.PASSED, p);
             endTurn();
         } else {
             // Allow passing if user chooses to (e.g. stuck)
-            defaultGame.setGameMessage(p.getName() + " passed turn (no play made).");
+            defaultGame.setGameMessage(Message.Code.PASSED_NO_PLAY, p);
             endTurn();
         }
+        return true;
     }
 
     public void discardAndEffect(String playerId, int cardIndex) {
+        gameLock.lock();
+        try {
+            doDiscardAndEffect(playerId, cardIndex);
+            changed();
+        } finally {
+            gameLock.unlock();
+        }
+    }
+
+    private boolean doDiscardAndEffect(String playerId, int cardIndex) {
         Player p = defaultGame.getCurrentPlayer();
         if (!p.getId().equals(playerId))
-            return;
+            return false;
 
         // BLOCK: Cannot discard if handling an effect
         if (defaultGame.getEffectState() != GameState.EffectState.NONE) {
             defaultGame.setGameMessage("Finish the current action first!");
-            return;
+            return false;
         }
 
         // BLOCK: Cannot discard if already played to stack
         if (defaultGame.isHasPlayedToStack()) {
             defaultGame.setGameMessage("Cannot discard! You played to the stack. You must Pass (End Turn) instead.");
-            return;
+            return false;
         }
 
         if (defaultGame.isHasDiscarded()) {
             defaultGame.setGameMessage("You have already discarded a card this turn!");
-            return;
+            return false;
         }
 
         if (cardIndex < 0 || cardIndex >= p.getHand().size())
-            return;
+            return false;
         Card card = p.getHand().remove(cardIndex);
         p.getDiscardPile().add(card);
         defaultGame.getDiscardPile().add(card); // Add to global discard for reshuffling and effects
+        cardsMoved(p);
 
-        // Handle Interactive Effects
-        if (isInteractiveEffect(card)) {
-            defaultGame.setEffectState(getInitialEffectState(card));
-            defaultGame.setEffectSourceRank(card.getRank());
-            initializeInteraction(card, p);
-        } else {
-            // Instant Effects
-            applyInstantEffect(card, p);
-            endTurn();
-        }
+        // Instant effects end the turn here, the others open an effect state
+        cardEffect(card.getRank()).onDiscard().apply(p, card);
+        return true;
     }
 
-    private boolean isInteractiveEffect(Card card) {
-        switch (card.getRank()) {
-            case QUEEN:
-            case JOKER:
-            case SEVEN:
-            case EIGHT:
-            case TEN:
-                return true;
-            default:
-                return false;
-        }
+    @FunctionalInterface
+    interface DiscardEffect {
+        void apply(Player p, Card card);
     }
 
-    private GameState.EffectState getInitialEffectState(Card card) {
-        switch (card.getRank()) {
-            case QUEEN:
-                return GameState.EffectState.QUEEN_PICK;
-            case JOKER:
-                return GameState.EffectState.JOKER_PICK;
-            case SEVEN:
-            case EIGHT:
-            case TEN:
-                return GameState.EffectState.SELECT_TARGET;
-            default:
-                return GameState.EffectState.NONE;
+    @FunctionalInterface
+    interface TargetEffect {
+        void apply(Player source, Player target);
+    }
+
+    /**
+     * What discarding a card of one rank does. onDiscard runs right after the
+     * discard and either ends the turn or opens an effect state; onTarget
+     * (SELECT_TARGET effects only, else null) runs once the target is chosen.
+     */
+    record CardEffect(DiscardEffect onDiscard, TargetEffect onTarget) {
+    }
+
+    private CardEffect cardEffect(Card.Rank rank) {
+        return cardEffects.get(ruleTable(defaultGame.getPlayers().size())).get(rank);
+    }
+
+    private static int ruleTable(int playerCount) {
+        return Math.min(Math.max(playerCount, MIN_RULE_PLAYERS), MAX_RULE_PLAYERS) - MIN_RULE_PLAYERS;
+    }
+
+    /**
+     * Replaces what a rank does at one table size, or at every size if
+     * playerCount is 0 (house rules). Affects games played by this instance.
+     */
+    void setCardEffect(int playerCount, Card.Rank rank, CardEffect effect) {
+        for (int n = MIN_RULE_PLAYERS; n <= MAX_RULE_PLAYERS; n++) {
+            if (playerCount == 0 || ruleTable(playerCount) == ruleTable(n))
+                cardEffects.get(ruleTable(n)).put(rank, effect);
         }
     }
 
-    private void initializeInteraction(Card card, Player p) {
-        defaultGame.getTempBuffer().clear();
+    private List<Map<Card.Rank, CardEffect>> cardEffectTables() {
+        List<Map<Card.Rank, CardEffect>> tables = new ArrayList<>();
+        for (int n = MIN_RULE_PLAYERS; n <= MAX_RULE_PLAYERS; n++) {
+            tables.add(cardEffects(n));
+        }
+        return tables;
+    }
 
-        if (card.getRank() == Card.Rank.QUEEN) {
-            // Draw 3 to buffer
-            int count = Math.min(3, defaultGame.getDrawPile().size());
-            // If < 3, reshuffle?
-            if (count < 3) {
-                reshuffleDeck();
-                count = Math.min(3, defaultGame.getDrawPile().size());
-            }
+    private Map<Card.Rank, CardEffect> cardEffects(int playerCount) {
+        Map<Card.Rank, CardEffect> effects = new EnumMap<>(Card.Rank.class);
+        CardEffect plain = new CardEffect(this::plainDiscard, null);
+        for (Card.Rank rank : Card.Rank.values()) {
+            effects.put(rank, plain);
+        }
+        boolean twoPlayer = playerCount == 2;
+        effects.put(Card.Rank.THREE, new CardEffect(this::threeDraw, null));
+        effects.put(Card.Rank.FOUR, new CardEffect(twoPlayer ? this::fourSkipOne : this::fourSkipTwo, null));
+        effects.put(Card.Rank.FIVE, new CardEffect(this::fiveDraw, null));
+        effects.put(Card.Rank.SIX, new CardEffect(this::sixSkip, null));
+        effects.put(Card.Rank.NINE, new CardEffect(this::nineSkip, null));
+        effects.put(Card.Rank.JACK, new CardEffect(twoPlayer ? this::jackSkip : this::jackReverse, null));
+        effects.put(Card.Rank.QUEEN, new CardEffect(this::queenDeal, null));
+        effects.put(Card.Rank.JOKER, new CardEffect(this::jokerOpen, null));
+        SevenRule rule = SevenRule.forPlayers(playerCount);
+        effects.put(Card.Rank.SEVEN, new CardEffect((p, card) -> sevenOpen(p, card, rule),
+                (source, target) -> sevenTarget(source, target, rule)));
+        effects.put(Card.Rank.EIGHT, new CardEffect(this::eightOpen,
+                twoPlayer ? this::eightFromHand : this::eightChooseSource));
+        effects.put(Card.Rank.TEN, new CardEffect(this::tenOpen, this::tenTarget));
+        return effects;
+    }
 
-            for (int i = 0; i < count; i++) {
-                if (!defaultGame.getDrawPile().isEmpty()) {
-                    defaultGame.getTempBuffer().add(defaultGame.getDrawPile().pop());
-                }
+    // Which Sevens have an effect, compared with the bottom facing card
+    private enum SevenRule {
+        SAME_SUIT, SAME_COLOR, OTHER_SUIT, ANY;
+
+        static SevenRule forPlayers(int playerCount) {
+            switch (playerCount) {
+                case 2:
+                    return SAME_SUIT;
+                case 3:
+                    return SAME_COLOR;
+                case 4:
+                    return OTHER_SUIT;
+                default:
+                    return ANY;
             }
-            defaultGame.setGameMessage("Queen played! Select 1 card to keep.");
+        }
 
-        } else if (card.getRank() == Card.Rank.JOKER) {
-            defaultGame.getTempBuffer().addAll(p.getDiscardPile());
-            // Remove the LAST card (the Joker itself) from options if present
-            if (!defaultGame.getTempBuffer().isEmpty()) {
-                defaultGame.getTempBuffer().remove(defaultGame.getTempBuffer().size() - 1);
+        boolean matches(Card seven, Card bottom) {
+            if (bottom == null)
+                return true; // Fallback
+            switch (this) {
+                case SAME_SUIT:
+                    return seven.getSuit() == bottom.getSuit();
+                case SAME_COLOR:
+                    return isRed(seven) == isRed(bottom);
+                case OTHER_SUIT:
+                    return seven.getSuit() != bottom.getSuit();
+                default:
+                    return true;
             }
+        }
 
-            if (defaultGame.getTempBuffer().isEmpty()) {
-                defaultGame.setGameMessage("Joker played! But discard pile is empty (except Joker).");
-                defaultGame.setEffectState(GameState.EffectState.NONE);
-                endTurn();
-            } else {
-                defaultGame.setGameMessage("Joker played! Choose ability:");
-                defaultGame.setEffectState(GameState.EffectState.JOKER_CHOICE_MODE); // Set to Choice Mode
-                defaultGame.setJokerPickCount(0);
-            }
-        } else if (card.getRank() == Card.Rank.SEVEN) {
-            // Validate 7 BEFORE showing target selection
-            if (!p.getHand().isEmpty()) {
-                if (isValidSeven(card)) {
-                    defaultGame.setGameMessage("Valid 7! Select a target to sabotage.");
-                } else {
-                    // 7 doesn't meet suit/color requirements - no effect
-                    defaultGame.setGameMessage("7 discarded but didn't match bottom card condition. No effect.");
-                    defaultGame.setEffectState(GameState.EffectState.NONE);
-                    endTurn();
-                }
-            } else {
-                defaultGame.setGameMessage("7 discarded, but you have no cards to use its power!");
-                defaultGame.setEffectState(GameState.EffectState.NONE);
-                endTurn();
-            }
-        } else if (card.getRank() == Card.Rank.EIGHT) {
-            defaultGame.setGameMessage("Select a target player.");
-        } else if (card.getRank() == Card.Rank.TEN) {
-            // Check if any player has a stack with 4+ cards
-            boolean hasValidStack = defaultGame.getPlayers().stream()
-                    .anyMatch(player -> player.getStack().size() >= 4);
-            if (hasValidStack) {
-                defaultGame.setGameMessage("Select a target player with 4+ cards in stack.");
-            } else {
-                // No valid stacks - effect does nothing
-                defaultGame.setGameMessage("TEN discarded but no stack has 4+ cards. Nothing happens.");
-                defaultGame.setEffectState(GameState.EffectState.NONE);
-                endTurn();
-            }
+        private static boolean isRed(Card c) {
+            return c.getSuit() == Card.Suit.HEARTS || c.getSuit() == Card.Suit.DIAMONDS;
         }
     }
 
-    public void handleInteraction(String playerId, String actionData) {
-        Player p = defaultGame.getCurrentPlayer();
-        if (!p.getId().equals(playerId))
-            return;
-
-        switch (defaultGame.getEffectState()) {
-            case QUEEN_PICK:
-                try {
-                    int pickIdx = Integer.parseInt(actionData);
-                    if (pickIdx >= 0 && pickIdx < defaultGame.getTempBuffer().size()) {
-                        p.getHand().add(defaultGame.getTempBuffer().remove(pickIdx));
-
-                        // If only 1 card remains, just put it back
-                        if (defaultGame.getTempBuffer().size() <= 1) {
-                            for (Card c : defaultGame.getTempBuffer()) {
-                                defaultGame.getDrawPile().push(c);
-                            }
-                            defaultGame.getTempBuffer().clear();
-                            defaultGame.setGameMessage("Card selected. Remaining returned to deck.");
-                            defaultGame.setEffectState(GameState.EffectState.NONE);
-                            endTurn();
-                        } else {
-                            // 2 cards remain - let player choose order
-                            defaultGame.setEffectState(GameState.EffectState.QUEEN_ORDER);
-                            defaultGame.setGameMessage("Choose which card goes on TOP of the deck.");
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                }
-                break;
+    // --- Instant effects ---
 
-            case QUEEN_ORDER:
-                try {
-                    int pickIdx = Integer.parseInt(actionData);
-                    if (pickIdx >= 0 && pickIdx < defaultGame.getTempBuffer().size()) {
-                        // Selected card goes on top (pushed last = drawn first)
-                        Card topCard = defaultGame.getTempBuffer().remove(pickIdx);
-
-                        // Push remaining card(s) first (they go under)
-                        for (Card c : defaultGame.getTempBuffer()) {
-                            defaultGame.getDrawPile().push(c);
-                        }
-                        // Push selected card last (it goes on top)
-                        defaultGame.getDrawPile().push(topCard);
-
-                        defaultGame.getTempBuffer().clear();
-                        defaultGame.setGameMessage("Cards returned to deck in your chosen order.");
-                        defaultGame.setEffectState(GameState.EffectState.NONE);
-                        endTurn();
-                    }
-                } catch (NumberFormatException e) {
-                }
-                break;
+    private void plainDiscard(Player p, Card card) {
+        defaultGame.setGameMessage(Message.Code.DISCARDED, card);
+        endTurn();
+    }
 
-            case JOKER_CHOICE_MODE:
-                // actionData should be "STACK" or "HAND"
-                if ("STACK".equals(actionData)) {
-                    defaultGame.setJokerModeToStack(true);
-                    defaultGame.setGameMessage("Pick up to 2 cards for your STACK.");
-                    defaultGame.setEffectState(GameState.EffectState.JOKER_PICK);
-                } else if ("HAND".equals(actionData)) {
-                    defaultGame.setJokerModeToStack(false);
-                    defaultGame.setGameMessage("Pick 1 card for your HAND.");
-                    defaultGame.setEffectState(GameState.EffectState.JOKER_PICK);
-                }
-                break;
+    private void threeDraw(Player p, Card card) {
+        drawN(p, 3);
+        defaultGame.setGameMessage("THREE! Drew 3 cards.");
+        endTurn();
+    }
 
-            case JOKER_PICK:
-                try {
-                    int pickIdx = Integer.parseInt(actionData);
-                    if (pickIdx >= 0 && pickIdx < defaultGame.getTempBuffer().size()) {
-                        Card picked = defaultGame.getTempBuffer().get(pickIdx); // Peek first
-
-                        if (defaultGame.isJokerModeToStack()) {
-                            // --- STACK MODE (Up to 2 cards, Strict Validation) ---
-                            Card top = p.getTopStack();
-                            boolean fitsStack = false;
-                            if (top == null) {
-                                fitsStack = (picked.getRank() != Card.Rank.JOKER && picked.getRank() != Card.Rank.ACE);
-                            } else {
-                                fitsStack = isSequenceValid(p, top, picked);
-                            }
-
-                            if (!fitsStack) {
-                                defaultGame.setGameMessage("Invalid selection! " + picked.getDisplayString()
-                                        + " does not fit your stack sequence.");
-                                return; // Let them pick again
-                            }
-
-                            // Proceed to move to stack
-                            defaultGame.getTempBuffer().remove(pickIdx);
-                            boolean found = removeCardFromPlayerDiscard(p, picked);
-
-                            if (found) {
-                                defaultGame.getDiscardPile().remove(picked);
-                                p.getStack().add(picked);
-
-                                // Check Win
-                                if (picked.getRank() == Card.Rank.ACE) {
-                                    defaultGame.setGameOver(true);
-                                    defaultGame.setWinner(p);
-                                    defaultGame.setGameMessage("WINNER! " + p.getName() + " placed the Ace via Joker!");
-                                    defaultGame.setEffectState(GameState.EffectState.NONE);
-                                    endTurn();
-                                    return;
-                                }
-
-                                int count = defaultGame.getJokerPickCount() + 1;
-                                defaultGame.setJokerPickCount(count);
-
-                                if (count < 2 && !defaultGame.getTempBuffer().isEmpty()) {
-                                    defaultGame.setGameMessage(
-                                            "Recovered " + picked.getDisplayString() + " to STACK. Pick one more.");
-                                } else {
-                                    defaultGame.getTempBuffer().clear();
-                                    defaultGame.setEffectState(GameState.EffectState.NONE);
-                                    defaultGame.setGameMessage("Joker effect complete.");
-                                    endTurn();
-                                }
-                            }
-                        } else {
-                            // --- HAND MODE (1 card, No Validation needed) ---
-                            defaultGame.getTempBuffer().remove(pickIdx);
-                            boolean found = removeCardFromPlayerDiscard(p, picked);
-
-                            if (found) {
-                                defaultGame.getDiscardPile().remove(picked);
-                                p.getHand().add(picked);
-                                defaultGame.setGameMessage("Recovered " + picked.getDisplayString() + " to HAND.");
-                            }
-
-                            // Always end after 1 card
-                            defaultGame.getTempBuffer().clear();
-                            defaultGame.setEffectState(GameState.EffectState.NONE);
-                            endTurn();
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                }
-                break;
+    private void fourSkipOne(Player p, Card card) {
+        defaultGame.skipPlayers(1);
+        defaultGame.setGameMessage(Message.Code.SKIPPED, 1);
+        endTurn();
+    }
 
-            case SELECT_TARGET:
-                Player target = defaultGame.getPlayers().stream()
-                        .filter(pl -> pl.getId().equals(actionData))
-                        .findFirst().orElse(null);
-
-                if (target != null && !target.getId().equals(p.getId())) {
-                    // For 8 in 3+ players, go to source selection
-                    if (defaultGame.getEffectSourceRank() == Card.Rank.EIGHT &&
-                            defaultGame.getPlayers().size() > 2) {
-                        defaultGame.setEightTargetPlayerId(target.getId());
-                        defaultGame.setEffectState(GameState.EffectState.EIGHT_CHOOSE_SOURCE);
-                        defaultGame.setGameMessage(
-                                "Choose: steal from " + target.getName() + "'s Hand, Stack, or Discard?");
-                    } else {
-                        applyTargetedEffect(p, target, defaultGame.getEffectSourceRank());
-                        // Check if effect changed state (e.g., EIGHT goes to EIGHT_PICK_CARD)
-                        if (defaultGame.getEffectState() == GameState.EffectState.NONE ||
-                                defaultGame.getEffectState() == GameState.EffectState.SELECT_TARGET) {
-                            defaultGame.setEffectState(GameState.EffectState.NONE);
-                            endTurn();
-                        }
-                        // Otherwise, a new state was set (like EIGHT_PICK_CARD), don't end turn
-                    }
-                }
-                break;
+    private void fourSkipTwo(Player p, Card card) {
+        defaultGame.skipPlayers(2);
+        defaultGame.setGameMessage(Message.Code.SKIPPED, 2);
+        endTurn();
+    }
 
-            case EIGHT_CHOOSE_SOURCE:
-                // actionData = "hand", "stack", or "discard"
-                String targetId = defaultGame.getEightTargetPlayerId();
-                Player eightTarget = defaultGame.getPlayers().stream()
-                        .filter(pl -> pl.getId().equals(targetId))
-                        .findFirst().orElse(null);
+    private void fiveDraw(Player p, Card card) {
+        drawN(p, 1);
+        defaultGame.setGameMessage("FIVE! Drew 1 card.");
+        endTurn();
+    }
 
-                if (eightTarget != null) {
-                    Card stolen = null;
-                    String sourceDesc = "";
-
-                    switch (actionData) {
-                        case "hand":
-                            // Go to card picking state (blind selection)
-                            if (!eightTarget.getHand().isEmpty()) {
-                                defaultGame.setEffectState(GameState.EffectState.EIGHT_PICK_CARD);
-                                defaultGame.setGameMessage("Pick a card from " + eightTarget.getName() + "'s hand!");
-                                return; // Don't end turn yet
-                            } else {
-                                defaultGame.setGameMessage(eightTarget.getName() + "'s hand is empty!");
-                            }
-                            break;
-                        case "stack":
-                            // Rule: Can only steal from stack if they have MORE THAN ONE card
-                            if (eightTarget.getStack().size() > 1) {
-                                stolen = eightTarget.getStack().remove(eightTarget.getStack().size() - 1);
-                                sourceDesc = "stack";
-                            } else {
-                                defaultGame.setGameMessage(
-                                        eightTarget.getName() + " only has 1 card in stack! Cannot steal.");
-                                return; // Don't end turn, let them choose again
-                            }
-                            break;
-                        case "discard":
-                            if (!eightTarget.getDiscardPile().isEmpty()) {
-                                stolen = eightTarget.getDiscardPile().remove(eightTarget.getDiscardPile().size() - 1);
-                                // Also remove from global discard pile to prevent duplicates
-                                defaultGame.getDiscardPile().remove(stolen);
-                                sourceDesc = "discard pile";
-                            }
-                            break;
-                    }
+    private void sixSkip(Player p, Card card) {
+        defaultGame.skipPlayers(1);
+        defaultGame.setGameMessage("SIX! Skipped next player.");
+        endTurn();
+    }
 
-                    if (stolen != null) {
-                        p.getHand().add(stolen);
-                        defaultGame.setGameMessage("EIGHT! Took " + stolen.getDisplayString() + " from "
-                                + eightTarget.getName() + "'s " + sourceDesc + "!");
-                    }
-                }
+    private void nineSkip(Player p, Card card) {
+        defaultGame.skipPlayers(1);
+        defaultGame.setGameMessage("NINE! Skipped next player.");
+        endTurn();
+    }
 
-                defaultGame.setEightTargetPlayerId(null);
-                defaultGame.setEffectState(GameState.EffectState.NONE);
-                endTurn();
-                break;
+    private void jackSkip(Player p, Card card) {
+        defaultGame.skipPlayers(1);
+        defaultGame.setGameMessage("JACK! Skipped next player.");
+        endTurn();
+    }
 
-            case EIGHT_PICK_CARD:
-                // actionData = card index in target's hand
-                try {
-                    int cardIdx = Integer.parseInt(actionData);
-                    String pickTargetId = defaultGame.getEightTargetPlayerId();
-                    Player pickTarget = defaultGame.getPlayers().stream()
-                            .filter(pl -> pl.getId().equals(pickTargetId))
-                            .findFirst().orElse(null);
-
-                    if (pickTarget != null && cardIdx >= 0 && cardIdx < pickTarget.getHand().size()) {
-                        Card stolen = pickTarget.getHand().remove(cardIdx);
-                        p.getHand().add(stolen);
-                        defaultGame.setGameMessage(
-                                "EIGHT! Took " + stolen.getDisplayString() + " from " + pickTarget.getName() + "!");
-                    }
-                } catch (NumberFormatException e) {
-                }
+    private void jackReverse(Player p, Card card) {
+        defaultGame.reverseDirection();
+        defaultGame.setGameMessage("JACK! Reversed play direction!");
+        endTurn();
+    }
 
-                defaultGame.setEightTargetPlayerId(null);
-                defaultGame.setEffectState(GameState.EffectState.NONE);
-                endTurn();
-                break;
+    // --- Interactive effects ---
 
-            case JOKER_STACK_VALUE:
-                // actionData = rank name (e.g., "THREE", "FOUR", etc.)
-                try {
-                    Card.Rank chosenRank = Card.Rank.valueOf(actionData.toUpperCase());
-                    // Validate: Can't be 2, Ace, or King
-                    if (chosenRank == Card.Rank.TWO || chosenRank == Card.Rank.ACE ||
-                            chosenRank == Card.Rank.KING || chosenRank == Card.Rank.JOKER) {
-                        defaultGame.setGameMessage("Joker cannot represent 2, Ace, King, or another Joker!");
-                        return;
-                    }
+    private void openEffect(GameState.EffectState state, Card card) {
+        defaultGame.setEffectState(state);
+        defaultGame.setEffectSourceRank(card.getRank());
+        defaultGame.getTempBuffer().clear();
+    }
 
-                    // Validate: Chosen value must be adjacent to card below Joker
-                    // The Joker is now on top, so card below is at size-2
-                    if (p.getStack().size() >= 2) {
-                        Card cardBelow = p.getStack().get(p.getStack().size() - 2);
-                        Card.Rank belowRank = cardBelow.getRank();
-                        // If card below is also a Joker, use its stored value
-                        if (belowRank == Card.Rank.JOKER && p.getJokerStackValue() != null) {
-                            belowRank = p.getJokerStackValue();
-                        }
-                        int diff = Math.abs(chosenRank.ordinal() - belowRank.ordinal());
-                        if (diff != 1) {
-                            defaultGame.setGameMessage("Joker value must be adjacent to " + belowRank + "! Choose " +
-                                    getAdjacentRanks(belowRank));
-                            return;
-                        }
-                    }
+    private void closeEffect() {
+        defaultGame.setEffectState(GameState.EffectState.NONE);
+        endTurn();
+    }
 
-                    p.setJokerStackValue(chosenRank);
-                    defaultGame.setGameMessage("Joker is now acting as " + chosenRank + "!");
-                    defaultGame.setEffectState(GameState.EffectState.NONE);
-                    endTurn();
-                } catch (IllegalArgumentException e) {
-                    defaultGame.setGameMessage("Invalid rank selection!");
-                }
-                break;
+    private void queenDeal(Player p, Card card) {
+        openEffect(GameState.EffectState.QUEEN_PICK, card);
+        // Draw 3 to buffer
+        int count = Math.min(3, defaultGame.getDrawPile().size());
+        // If < 3, reshuffle?
+        if (count < 3) {
+            reshuffleDeck();
+            count = Math.min(3, defaultGame.getDrawPile().size());
+        }
 
-            case SEVEN_PASS_CARD:
-                try {
-                    int cardIdx = Integer.parseInt(actionData);
-                    String passTargetId = defaultGame.getSevenTargetPlayerId();
-                    Player passTarget = defaultGame.getPlayers().stream()
-                            .filter(pl -> pl.getId().equals(passTargetId))
-                            .findFirst().orElse(null);
-
-                    if (passTarget != null && cardIdx >= 0 && cardIdx < p.getHand().size()) {
-                        Card gift = p.getHand().remove(cardIdx);
-                        passTarget.getStack().add(gift);
-                        defaultGame.setGameMessage(
-                                "Placed " + gift.getDisplayString() + " on " + passTarget.getName() + "'s stack!");
-                        defaultGame.setSevenTargetPlayerId(null);
-                        defaultGame.setEffectState(GameState.EffectState.NONE);
-                        endTurn();
-                    }
-                } catch (NumberFormatException e) {
-                }
-                break;
+        for (int i = 0; i < count; i++) {
+            if (!defaultGame.getDrawPile().isEmpty()) {
+                defaultGame.getTempBuffer().add(defaultGame.getDrawPile().pop());
+            }
         }
+        features.pilesChanged(defaultGame);
+        defaultGame.setGameMessage("Queen played! Select 1 card to keep.");
     }
 
-    private boolean isValidSeven(Card seven) {
-        Card bottom = defaultGame.getBottomFacingCard();
-        if (bottom == null)
-            return true; // Fallback
+    private void jokerOpen(Player p, Card card) {
+        openEffect(GameState.EffectState.JOKER_PICK, card);
+        addRecoverableDiscards(p, defaultGame.getTempBuffer());
+        // Remove the LAST card (the Joker itself) from options if present
+        if (!defaultGame.getTempBuffer().isEmpty()) {
+            defaultGame.getTempBuffer().remove(defaultGame.getTempBuffer().size() - 1);
+        }
 
-        int playerCount = defaultGame.getPlayers().size();
+        if (defaultGame.getTempBuffer().isEmpty()) {
+            defaultGame.setGameMessage("Joker played! But discard pile is empty (except Joker).");
+            closeEffect();
+        } else {
+            defaultGame.setGameMessage("Joker played! Choose ability:");
+            defaultGame.setEffectState(GameState.EffectState.JOKER_CHOICE_MODE); // Set to Choice Mode
+            defaultGame.setJokerPickCount(0);
+        }
+    }
 
-        if (playerCount == 2) {
-            // Must match suit
-            return seven.getSuit() == bottom.getSuit();
-        } else if (playerCount == 3) {
-            // Must match color
-            boolean sevenRed = (seven.getSuit() == Card.Suit.HEARTS || seven.getSuit() == Card.Suit.DIAMONDS);
-            boolean bottomRed = (bottom.getSuit() == Card.Suit.HEARTS || bottom.getSuit() == Card.Suit.DIAMONDS);
-            return sevenRed == bottomRed;
-        } else if (playerCount == 4) {
-            // Any suit EXCEPT bottom suit
-            return seven.getSuit() != bottom.getSuit();
+    private void sevenOpen(Player p, Card card, SevenRule rule) {
+        openEffect(GameState.EffectState.SELECT_TARGET, card);
+        // Validate 7 BEFORE showing target selection
+        if (p.getHand().isEmpty()) {
+            defaultGame.setGameMessage("7 discarded, but you have no cards to use its power!");
+            closeEffect();
+        } else if (rule.matches(card, defaultGame.getBottomFacingCard())) {
+            defaultGame.setGameMessage("Valid 7! Select a target to sabotage.");
         } else {
-            // 5+ players: Any 7 works
-            return true;
+            // 7 doesn't meet suit/color requirements - no effect
+            defaultGame.setGameMessage("7 discarded but didn't match bottom card condition. No effect.");
+            closeEffect();
         }
     }
 
-    private boolean removeCardFromPlayerDiscard(Player p, Card picked) {
-        for (int i = 0; i < p.getDiscardPile().size(); i++) {
-            if (p.getDiscardPile().get(i).equals(picked)) {
-                p.getDiscardPile().remove(i);
-                return true;
-            }
+    // Sabotage: the player then puts a card from their hand on the target's stack
+    private void sevenTarget(Player source, Player target, SevenRule rule) {
+        // Defensive check: ensure discard pile is not empty
+        if (defaultGame.getDiscardPile().isEmpty()) {
+            defaultGame.setGameMessage("7 discarded but no card in discard pile. No effect.");
+            closeEffect();
+            return;
+        }
+        Card playedSeven = defaultGame.getDiscardPile().get(defaultGame.getDiscardPile().size() - 1);
+        if (rule.matches(playedSeven, defaultGame.getBottomFacingCard())) {
+            defaultGame.setSevenTargetPlayerId(target.getId());
+            defaultGame.setEffectState(GameState.EffectState.SEVEN_PASS_CARD);
+            defaultGame.setGameMessage(Message.Code.SEVEN_PICK, target);
+        } else {
+            defaultGame.setGameMessage("7 played, but didn't match bottom card condition. No effect.");
+            closeEffect();
         }
-        return false;
     }
 
-    private void applyTargetedEffect(Player source, Player target, Card.Rank rank) {
-        switch (rank) {
-            case EIGHT: // Steal a card from target
-                // Check if target has ANY cards to steal
-                boolean hasHand = !target.getHand().isEmpty();
-                boolean hasStack = !target.getStack().isEmpty();
-                boolean hasDiscard = !target.getDiscardPile().isEmpty();
+    private void eightOpen(Player p, Card card) {
+        openEffect(GameState.EffectState.SELECT_TARGET, card);
+        defaultGame.setGameMessage("Select a target player.");
+    }
 
-                defaultGame.setEightTargetPlayerId(target.getId());
+    // 2 players: can only take from the other player's hand
+    private void eightFromHand(Player source, Player target) {
+        defaultGame.setEightTargetPlayerId(target.getId());
+        if (!target.getHand().isEmpty()) {
+            // Skip source selection, go directly to picking from hand
+            defaultGame.setEffectState(GameState.EffectState.EIGHT_PICK_CARD);
+            defaultGame.setGameMessage(Message.Code.EIGHT_PICK_TWO_PLAYER, target);
+        } else {
+            defaultGame.setGameMessage(Message.Code.EIGHT_NO_HAND, target);
+            closeEffect();
+        }
+    }
 
-                // If 2 Players: Rule is "Can only take from someone's hand"
-                if (defaultGame.getPlayers().size() == 2) {
-                    if (hasHand) {
-                        // Skip source selection, go directly to picking from hand
-                        defaultGame.setEffectState(GameState.EffectState.EIGHT_PICK_CARD);
-                        defaultGame.setGameMessage("Stealing from " + target.getName() + "'s hand... pick a card!");
-                    } else {
-                        defaultGame.setGameMessage(target.getName() + " has no cards in hand!");
-                        defaultGame.setEffectState(GameState.EffectState.NONE);
-                        endTurn();
-                    }
-                } else {
-                    // 3+ Players: Choose Source (Hand, Stack, Discard)
-                    if (hasHand || hasStack || hasDiscard) {
-                        defaultGame.setEffectState(GameState.EffectState.EIGHT_CHOOSE_SOURCE);
-                        defaultGame.setGameMessage(
-                                "Choose where to steal from " + target.getName() + ": Hand, Stack, or Discard!");
-                    } else {
-                        defaultGame.setGameMessage(target.getName() + " has no cards to steal!");
-                        defaultGame.setEffectState(GameState.EffectState.NONE);
-                        endTurn();
-                    }
+    // 3+ players: choose hand, stack or discard next
+    private void eightChooseSource(Player source, Player target) {
+        defaultGame.setEightTargetPlayerId(target.getId());
+        defaultGame.setEffectState(GameState.EffectState.EIGHT_CHOOSE_SOURCE);
+        defaultGame.setGameMessage(Message.Code.EIGHT_CHOOSE, target);
+    }
+
+    private void tenOpen(Player p, Card card) {
+        openEffect(GameState.EffectState.SELECT_TARGET, card);
+        // Check if any player has a stack with 4+ cards
+        boolean hasValidStack = false;
+        for (Player player : defaultGame.getPlayers()) {
+            hasValidStack |= player.getStack().size() >= 4;
+        }
+        if (hasValidStack) {
+            defaultGame.setGameMessage("Select a target player with 4+ cards in stack.");
+        } else {
+            // No valid stacks - effect does nothing
+            defaultGame.setGameMessage("TEN discarded but no stack has 4+ cards. Nothing happens.");
+            closeEffect();
+        }
+    }
+
+    // Take top 3 from the target's stack (if 4+ cards) into the discard pile
+    private void tenTarget(Player source, Player target) {
+        if (target.getStack().size() >= 4) {
+            for (int i = 0; i < 3; i++) {
+                defaultGame.getDiscardPile().add(target.getStack().remove(target.getStack().size() - 1));
+            }
+            cardsMoved(target);
+            defaultGame.setGameMessage(Message.Code.TEN_TOOK, target);
+        } else {
+            defaultGame.setGameMessage(Message.Code.TEN_TOO_SMALL, target);
+        }
+        closeEffect();
+    }
+
+    public void handleInteraction(String playerId, String actionData) {
+        gameLock.lock();
+        try {
+            doHandleInteraction(playerId, actionData);
+            changed();
+        } finally {
+            gameLock.unlock();
+        }
+    }
+
+    // Returns false if the choice was not accepted (wrong player, bad index,
+    // invalid pick); the effect then stays open
+    private boolean doHandleInteraction(String playerId, String actionData) {
+        if (!defaultGame.getCurrentPlayer().getId().equals(playerId))
+            return false;
+        int code = parseEffect(actionData);
+        return code >= 0 && doEffect(playerId, code);
+    }
+
+    // The /game/effect actionData ("0", "stack", "SEVEN", a player id) as the
+    // ActionCodes move of the current effect step, or -1 if it names nothing
+    private int parseEffect(String actionData) {
+        if (actionData == null)
+            return -1;
+        switch (defaultGame.getEffectState()) {
+            case JOKER_CHOICE_MODE:
+                return named(ActionCodes.MODE, ActionCodes.MODES, actionData);
+            case EIGHT_CHOOSE_SOURCE:
+                return named(ActionCodes.SOURCE, ActionCodes.SOURCES, actionData);
+            case SELECT_TARGET: {
+                int seat = defaultGame.seatOf(actionData);
+                return (seat >= 0) ? ActionCodes.encode(ActionCodes.TARGET, seat) : -1;
+            }
+            case JOKER_STACK_VALUE:
+                try {
+                    return ActionCodes.encode(ActionCodes.RANK, Card.Rank.valueOf(actionData.toUpperCase()).ordinal());
+                } catch (IllegalArgumentException e) {
+                    defaultGame.setGameMessage("Invalid rank selection!");
+                    return -1;
                 }
-                break;
-            case TEN: // Take top 3 from stack (if 4+ cards)
-                if (target.getStack().size() >= 4) {
-                    // Take top 3 cards from target's stack
-                    List<Card> taken = new ArrayList<>();
-                    for (int i = 0; i < 3; i++) {
-                        taken.add(target.getStack().remove(target.getStack().size() - 1));
-                    }
-                    // Add to discard pile (they're destroyed)
-                    defaultGame.getDiscardPile().addAll(taken);
-                    defaultGame.setGameMessage("TEN! Took 3 cards from " + target.getName() + "'s stack!");
-                } else {
-                    defaultGame.setGameMessage(target.getName() + "'s stack needs 4+ cards!");
+            default:
+                try {
+                    int index = Integer.parseInt(actionData);
+                    return (index >= 0 && index <= ActionCodes.MAX_ARG)
+                            ? ActionCodes.encode(ActionCodes.PICK, index)
+                            : -1;
+                } catch (NumberFormatException e) {
+                    return -1;
                 }
-                defaultGame.setEffectState(GameState.EffectState.NONE);
-                endTurn();
-                break;
-            case SEVEN: // Sabotage: Put card from hand to target stack
-                // Check if valid 7 first
-                // Actually the 7 is already played. The rule "7 (that matches...) you can
-                // put..."
-                // implies the effect ONLY happens if the 7 was valid according to specific
-                // rules.
-                // Since we assume the move was allowed, we check if the effect triggers.
-
-                // Defensive check: ensure discard pile is not empty
-                if (defaultGame.getDiscardPile().isEmpty()) {
-                    defaultGame.setGameMessage("7 discarded but no card in discard pile. No effect.");
+        }
+    }
+
+    private static int named(int kind, String[] names, String actionData) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(actionData))
+                return ActionCodes.encode(kind, i);
+        }
+        return -1;
+    }
+
+    /**
+     * Applies an effect choice (an ActionCodes move) through the step
+     * registered for the current effect state; the code's kind must be the
+     * one that step takes.
+     */
+    private boolean doEffect(String playerId, int code) {
+        Player p = defaultGame.getCurrentPlayer();
+        if (!p.getId().equals(playerId))
+            return false;
+        EffectStep step = effectSteps.get(defaultGame.getEffectState());
+        return step != null && step.kind() == ActionCodes.kind(code) && step.handler().apply(p, ActionCodes.arg(code));
+    }
+
+    @FunctionalInterface
+    private interface EffectHandler {
+        boolean apply(Player p, int arg);
+    }
+
+    // Handler of one effect state and the ActionCodes kind it takes
+    private record EffectStep(int kind, EffectHandler handler) {
+    }
+
+    private Map<GameState.EffectState, EffectStep> effectSteps() {
+        Map<GameState.EffectState, EffectStep> steps = new EnumMap<>(GameState.EffectState.class);
+        steps.put(GameState.EffectState.QUEEN_PICK, new EffectStep(ActionCodes.PICK, this::queenPick));
+        steps.put(GameState.EffectState.QUEEN_ORDER, new EffectStep(ActionCodes.PICK, this::queenOrder));
+        steps.put(GameState.EffectState.JOKER_CHOICE_MODE, new EffectStep(ActionCodes.MODE, this::jokerMode));
+        steps.put(GameState.EffectState.JOKER_PICK, new EffectStep(ActionCodes.PICK, this::jokerPick));
+        steps.put(GameState.EffectState.SELECT_TARGET, new EffectStep(ActionCodes.TARGET, this::selectTarget));
+        steps.put(GameState.EffectState.EIGHT_CHOOSE_SOURCE, new EffectStep(ActionCodes.SOURCE, this::eightSource));
+        steps.put(GameState.EffectState.EIGHT_PICK_CARD, new EffectStep(ActionCodes.PICK, this::eightPick));
+        steps.put(GameState.EffectState.JOKER_STACK_VALUE, new EffectStep(ActionCodes.RANK, this::jokerValue));
+        steps.put(GameState.EffectState.SEVEN_PASS_CARD, new EffectStep(ActionCodes.PICK, this::sevenPass));
+        return steps;
+    }
+
+    private boolean queenPick(Player p, int pickIdx) {
+        if (pickIdx >= defaultGame.getTempBuffer().size())
+            return false;
+        p.getHand().add(defaultGame.getTempBuffer().remove(pickIdx));
+        cardsMoved(p);
+
+        // If only 1 card remains, just put it back
+        if (defaultGame.getTempBuffer().size() <= 1) {
+            for (Card c : defaultGame.getTempBuffer()) {
+                defaultGame.getDrawPile().push(c);
+            }
+            defaultGame.getTempBuffer().clear();
+            features.pilesChanged(defaultGame);
+            defaultGame.setGameMessage("Card selected. Remaining returned to deck.");
+            defaultGame.setEffectState(GameState.EffectState.NONE);
+            endTurn();
+        } else {
+            // 2 cards remain - let player choose order
+            defaultGame.setEffectState(GameState.EffectState.QUEEN_ORDER);
+            defaultGame.setGameMessage("Choose which card goes on TOP of the deck.");
+        }
+        return true;
+    }
+
+    private boolean queenOrder(Player p, int pickIdx) {
+        if (pickIdx >= defaultGame.getTempBuffer().size())
+            return false;
+        // Selected card goes on top (pushed last = drawn first)
+        Card topCard = defaultGame.getTempBuffer().remove(pickIdx);
+
+        // Push remaining card(s) first (they go under)
+        for (Card c : defaultGame.getTempBuffer()) {
+            defaultGame.getDrawPile().push(c);
+        }
+        // Push selected card last (it goes on top)
+        defaultGame.getDrawPile().push(topCard);
+        features.pilesChanged(defaultGame);
+
+        defaultGame.getTempBuffer().clear();
+        defaultGame.setGameMessage("Cards returned to deck in your chosen order.");
+        defaultGame.setEffectState(GameState.EffectState.NONE);
+        endTurn();
+        return true;
+    }
+
+    // mode: 0 STACK, 1 HAND
+    private boolean jokerMode(Player p, int mode) {
+        if (mode == 0) {
+            defaultGame.setJokerModeToStack(true);
+            defaultGame.setGameMessage("Pick up to 2 cards for your STACK.");
+        } else if (mode == 1) {
+            defaultGame.setJokerModeToStack(false);
+            defaultGame.setGameMessage("Pick 1 card for your HAND.");
+        } else {
+            return false;
+        }
+        defaultGame.setEffectState(GameState.EffectState.JOKER_PICK);
+        return true;
+    }
+
+    private boolean jokerPick(Player p, int pickIdx) {
+        if (pickIdx >= defaultGame.getTempBuffer().size())
+            return false;
+        Card picked = defaultGame.getTempBuffer().get(pickIdx); // Peek first
+
+        if (defaultGame.isJokerModeToStack()) {
+            // --- STACK MODE (Up to 2 cards, Strict Validation) ---
+            if (!canStack(p, picked)) {
+                defaultGame.setGameMessage(Message.Code.JOKER_PICK_INVALID, picked);
+                return false; // Let them pick again
+            }
+
+            // Proceed to move to stack
+            defaultGame.getTempBuffer().remove(pickIdx);
+            boolean found = removeCardFromPlayerDiscard(p, picked);
+
+            if (found) {
+                defaultGame.getDiscardPile().remove(picked);
+                p.getStack().add(picked);
+                cardsMoved(p);
+
+                // Check Win
+                if (picked.getRank() == Card.Rank.ACE) {
+                    defaultGame.setGameOver(true);
+                    defaultGame.setWinner(p);
+                    recordOutcome(p);
+                    defaultGame.setGameMessage(Message.Code.WON_VIA_JOKER, p);
                     defaultGame.setEffectState(GameState.EffectState.NONE);
                     endTurn();
-                    break;
+                    return true;
                 }
 
-                // We need the card itself to check.
-                // But applyTargetedEffect only gets rank.
-                // We need to pass the card or check top of discard.
-                Card playedSeven = defaultGame.getDiscardPile().get(defaultGame.getDiscardPile().size() - 1);
-                if (isValidSeven(playedSeven)) {
-                    defaultGame.setSevenTargetPlayerId(target.getId());
-                    defaultGame.setEffectState(GameState.EffectState.SEVEN_PASS_CARD);
-                    defaultGame.setGameMessage(
-                            "Valid 7! Pick a card from YOUR hand to put on " + target.getName() + "'s stack!");
+                int count = defaultGame.getJokerPickCount() + 1;
+                defaultGame.setJokerPickCount(count);
+
+                if (count < 2 && !defaultGame.getTempBuffer().isEmpty()) {
+                    defaultGame.setGameMessage(Message.Code.JOKER_TO_STACK, picked);
                 } else {
-                    defaultGame.setGameMessage("7 played, but didn't match bottom card condition. No effect.");
+                    defaultGame.getTempBuffer().clear();
                     defaultGame.setEffectState(GameState.EffectState.NONE);
+                    defaultGame.setGameMessage("Joker effect complete.");
                     endTurn();
                 }
-                break;
-            default:
-                break;
+            }
+        } else {
+            // --- HAND MODE (1 card, No Validation needed) ---
+            defaultGame.getTempBuffer().remove(pickIdx);
+            boolean found = removeCardFromPlayerDiscard(p, picked);
+
+            if (found) {
+                defaultGame.getDiscardPile().remove(picked);
+                p.getHand().add(picked);
+                cardsMoved(p);
+                defaultGame.setGameMessage(Message.Code.JOKER_TO_HAND, picked);
+            }
+
+            // Always end after 1 card
+            defaultGame.getTempBuffer().clear();
+            defaultGame.setEffectState(GameState.EffectState.NONE);
+            endTurn();
         }
+        return true;
     }
 
-    private void applyInstantEffect(Card card, Player p) {
-        int playerCount = defaultGame.getPlayers().size();
+    private boolean selectTarget(Player p, int seat) {
+        if (seat >= defaultGame.getPlayers().size())
+            return false;
+        Player target = defaultGame.getPlayers().get(seat);
+        if (target == p)
+            return false;
 
-        switch (card.getRank()) {
-            case THREE: // Draw 3
-                drawN(p, 3);
-                defaultGame.setGameMessage("THREE! Drew 3 cards.");
-                break;
-            case FOUR: // Skip 2 (or 1 in 2-player)
-                int skipCount = (playerCount == 2) ? 1 : 2;
-                defaultGame.skipPlayers(skipCount);
-                defaultGame.setGameMessage("FOUR! Skipped " + skipCount + " player(s).");
-                break;
-            case FIVE: // Draw 1
-                drawN(p, 1);
-                defaultGame.setGameMessage("FIVE! Drew 1 card.");
-                break;
-            case SIX: // Skip 1
-                defaultGame.skipPlayers(1);
-                defaultGame.setGameMessage("SIX! Skipped next player.");
-                break;
-            case NINE: // Skip 1
-                defaultGame.skipPlayers(1);
-                defaultGame.setGameMessage("NINE! Skipped next player.");
-                break;
-            case JACK: // Reverse (or Skip in 2-player)
-                if (playerCount == 2) {
-                    defaultGame.skipPlayers(1);
-                    defaultGame.setGameMessage("JACK! Skipped next player.");
-                } else {
-                    defaultGame.reverseDirection();
-                    defaultGame.setGameMessage("JACK! Reversed play direction!");
-                }
-                break;
-            default:
-                defaultGame.setGameMessage("Discarded " + card.getDisplayString() + ".");
+        CardEffect effect = cardEffect(defaultGame.getEffectSourceRank());
+        if (effect != null && effect.onTarget() != null) {
+            effect.onTarget().apply(p, target);
+        }
+        // Done unless the effect moved on to another state (e.g. EIGHT_PICK_CARD)
+        if (defaultGame.getEffectState() == GameState.EffectState.NONE ||
+                defaultGame.getEffectState() == GameState.EffectState.SELECT_TARGET) {
+            closeEffect();
+        }
+        return true;
+    }
+
+    // source: 0 hand, 1 stack, 2 discard
+    private boolean eightSource(Player p, int source) {
+        Player eightTarget = defaultGame.findPlayer(defaultGame.getEightTargetPlayerId());
+
+        if (eightTarget != null) {
+            Card stolen = null;
+            Message.Code took = null;
+
+            switch (source) {
+                case 0:
+                    // Go to card picking state (blind selection)
+                    if (!eightTarget.getHand().isEmpty()) {
+                        defaultGame.setEffectState(GameState.EffectState.EIGHT_PICK_CARD);
+                        defaultGame.setGameMessage(Message.Code.EIGHT_PICK, eightTarget);
+                        return true; // Don't end turn yet
+                    } else {
+                        defaultGame.setGameMessage(Message.Code.EIGHT_HAND_EMPTY, eightTarget);
+                    }
+                    break;
+                case 1:
+                    // Rule: Can only steal from stack if they have MORE THAN ONE card
+                    if (eightTarget.getStack().size() > 1) {
+                        stolen = eightTarget.getStack().remove(eightTarget.getStack().size() - 1);
+                        took = Message.Code.EIGHT_TOOK_FROM_STACK;
+                    } else {
+                        defaultGame.setGameMessage(Message.Code.EIGHT_STACK_TOO_SMALL, eightTarget);
+                        return false; // Don't end turn, let them choose again
+                    }
+                    break;
+                case 2:
+                    List<Card> discards = eightTarget.getDiscardPile();
+                    // Also remove from global discard pile to prevent duplicates; a
+                    // card no longer there went back into the draw pile at a reshuffle
+                    if (!discards.isEmpty() && defaultGame.getDiscardPile().remove(discards.get(discards.size() - 1))) {
+                        stolen = discards.remove(discards.size() - 1);
+                        took = Message.Code.EIGHT_TOOK_FROM_DISCARDS;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+
+            if (stolen != null) {
+                p.getHand().add(stolen);
+                cardsMoved(p, eightTarget);
+                defaultGame.setGameMessage(took, stolen, eightTarget);
+            }
         }
+
+        defaultGame.setEightTargetPlayerId(null);
+        defaultGame.setEffectState(GameState.EffectState.NONE);
+        endTurn();
+        return true;
+    }
+
+    // cardIdx: position in the target's hand
+    private boolean eightPick(Player p, int cardIdx) {
+        Player pickTarget = defaultGame.findPlayer(defaultGame.getEightTargetPlayerId());
+        if (pickTarget != null && cardIdx < pickTarget.getHand().size()) {
+            Card stolen = pickTarget.getHand().remove(cardIdx);
+            p.getHand().add(stolen);
+            cardsMoved(p, pickTarget);
+            defaultGame.setGameMessage(Message.Code.EIGHT_TOOK, stolen, pickTarget);
+        }
+
+        defaultGame.setEightTargetPlayerId(null);
+        defaultGame.setEffectState(GameState.EffectState.NONE);
+        endTurn();
+        return true;
+    }
+
+    private boolean jokerValue(Player p, int rankOrdinal) {
+        if (rankOrdinal >= Card.Rank.values().length)
+            return false;
+        Card.Rank chosenRank = Card.Rank.values()[rankOrdinal];
+        // Validate: Can't be 2, Ace, or King
+        if (!StackChainPlanner.isJokerRank(chosenRank)) {
+            defaultGame.setGameMessage("Joker cannot represent 2, Ace, King, or another Joker!");
+            return false;
+        }
+
+        // Validate: Chosen value must be adjacent to card below Joker
+        Card.Rank belowRank = rankBelowJoker(p);
+        if (belowRank != null && Math.abs(chosenRank.ordinal() - belowRank.ordinal()) != 1) {
+            defaultGame.setGameMessage("Joker value must be adjacent to " + belowRank + "! Choose " +
+                    getAdjacentRanks(belowRank));
+            return false;
+        }
+
+        p.setJokerStackValue(chosenRank);
+        defaultGame.setGameMessage(Message.Code.JOKER_VALUE, chosenRank);
+        defaultGame.setEffectState(GameState.EffectState.NONE);
+        endTurn();
+        return true;
+    }
+
+    private boolean sevenPass(Player p, int cardIdx) {
+        Player passTarget = defaultGame.findPlayer(defaultGame.getSevenTargetPlayerId());
+        if (passTarget == null || cardIdx >= p.getHand().size())
+            return false;
+
+        Card gift = p.getHand().remove(cardIdx);
+        passTarget.getStack().add(gift);
+        cardsMoved(p, passTarget);
+        defaultGame.setGameMessage(Message.Code.SEVEN_PLACED, gift, passTarget);
+        defaultGame.setSevenTargetPlayerId(null);
+        defaultGame.setEffectState(GameState.EffectState.NONE);
+        endTurn();
+        return true;
+    }
+
+    // Rank the Joker on top of p's stack must be adjacent to, or null if
+    // nothing is below it. The Joker is on top, so the card below is at size-2.
+    private Card.Rank rankBelowJoker(Player p) {
+        if (p.getStack().size() < 2)
+            return null;
+        Card.Rank belowRank = p.getStack().get(p.getStack().size() - 2).getRank();
+        // If card below is also a Joker, use its stored value
+        if (belowRank == Card.Rank.JOKER && p.getJokerStackValue() != null) {
+            belowRank = p.getJokerStackValue();
+        }
+        return belowRank;
+    }
+
+    // Cards of p's discards still in the discard pile, in order. The others
+    // went back into the draw pile at a reshuffle; a card discarded again
+    // since then only counts at its latest place.
+    private void addRecoverableDiscards(Player p, List<Card> out) {
+        java.util.BitSet inPile = new java.util.BitSet(defaultGame.getDeckCount() * Card.DECK_SIZE);
+        for (Card c : defaultGame.getDiscardPile()) {
+            inPile.set(c.getId());
+        }
+        List<Card> discards = p.getDiscardPile();
+        boolean[] keep = new boolean[discards.size()];
+        for (int i = discards.size() - 1; i >= 0; i--) {
+            int id = discards.get(i).getId();
+            if (inPile.get(id)) {
+                inPile.clear(id);
+                keep[i] = true;
+            }
+        }
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i])
+                out.add(discards.get(i));
+        }
+    }
+
+    // Removes the latest copy, the one still in the discard pile
+    private boolean removeCardFromPlayerDiscard(Player p, Card picked) {
+        for (int i = p.getDiscardPile().size() - 1; i >= 0; i--) {
+            if (p.getDiscardPile().get(i).equals(picked)) {
+                p.getDiscardPile().remove(i);
+                return true;
+            }
+        }
+        return false;
     }
 
     private void drawN(Player p, int n) {
@@ -948,6 +1334,26 @@ public class GameService {
             if (!defaultGame.getDrawPile().isEmpty())
                 p.getHand().add(defaultGame.getDrawPile().pop());
         }
+        cardsMoved(p);
+    }
+
+    // Brings the feature table up to date after cards moved to or from these
+    // seats (and possibly the draw pile)
+    private void cardsMoved(Player... seats) {
+        for (Player p : seats) {
+            features.seatChanged(p);
+        }
+        features.pilesChanged(defaultGame);
+    }
+
+    private void recordOutcome(Player winner) {
+        if (batchOpen) {
+            batchWinner = winner;
+            return;
+        }
+        if (!simulation && trainingEpisode.size() > 0) {
+            trainingEpisode.finish(winner.getId(), com.aces.game.ai.TrainingDatasetWriter.getInstance());
+        }
     }
 
     private void endTurn() {
@@ -964,29 +1370,276 @@ public class GameService {
     }
 
     /**
-     * Executes ONE step of a CPU turn. Called by controller for animated
-     * progression.
-     * Returns true if the CPU turn is complete, false if more steps needed.
+     * Applies the actions in order for one player, under a single hold of the
+     * game lock, so no other request can interleave. All or nothing: if an
+     * action is rejected (or comes after the game ended), the game is put
+     * back as it was before the batch. Listeners see one state change for a
+     * batch that was kept and none for one that was undone.
      */
-    public void processCpuStep() {
-        if (defaultGame.getPhase() != GameState.Phase.PLAYING)
-            return;
+    public ActionBatchResult applyActions(String playerId, List<GameAction> actions) {
+        gameLock.lock();
+        try {
+            if (defaultGame == null || defaultGame.getPhase() != GameState.Phase.PLAYING)
+                return new ActionBatchResult(0, actions.isEmpty() ? -1 : 0, "No game in progress");
+            if (actions.isEmpty())
+                return new ActionBatchResult(0, -1, defaultGame.getGameMessage());
+
+            GameState before = defaultGame.copy();
+            int applied = 0;
+            batchOpen = true;
+            batchWinner = null;
+            try {
+                for (GameAction action : actions) {
+                    if (defaultGame.isGameOver() || !applyAction(playerId, action))
+                        break;
+                    applied++;
+                }
+            } finally {
+                batchOpen = false;
+            }
 
-        Player current = defaultGame.getCurrentPlayer();
-        if (current.isPc()) // If human, don't process
-            return;
+            if (applied < actions.size()) {
+                // Keep the reason it was rejected, then undo the batch
+                String message = defaultGame.getGameMessage();
+                before.copyInto(defaultGame);
+                features.reset(defaultGame);
+                return new ActionBatchResult(0, applied, message);
+            }
+            if (batchWinner != null) {
+                recordOutcome(batchWinner);
+            }
+            changed();
+            return new ActionBatchResult(applied, -1, defaultGame.getGameMessage());
+        } finally {
+            gameLock.unlock();
+        }
+    }
 
-        // Add Artificial Delay for Visuals
+    private boolean applyAction(String playerId, GameAction action) {
+        if (action == null || action.type() == null)
+            return false;
+        int cardIndex = (action.cardIndex() != null) ? action.cardIndex() : -1;
+        switch (action.type()) {
+            case GameAction.DRAW:
+                return doDrawCard(playerId);
+            case GameAction.PLAY:
+                return doPlayToStack(playerId, cardIndex);
+            case GameAction.DISCARD:
+                return doDiscardAndEffect(playerId, cardIndex);
+            case GameAction.EFFECT:
+                return action.data() != null && doHandleInteraction(playerId, action.data());
+            case GameAction.SKIP:
+                return doSkipTurn(playerId);
+            default:
+                return false;
+        }
+    }
+
+    private boolean applyCode(String playerId, int code) {
+        int arg = ActionCodes.arg(code);
+        switch (ActionCodes.kind(code)) {
+            case ActionCodes.DRAW:
+                return doDrawCard(playerId);
+            case ActionCodes.PLAY:
+                return doPlayToStack(playerId, arg);
+            case ActionCodes.DISCARD:
+                return doDiscardAndEffect(playerId, arg);
+            case ActionCodes.SKIP:
+                return doSkipTurn(playerId);
+            default:
+                return doEffect(playerId, code);
+        }
+    }
+
+    /**
+     * Writes every move the player to move can make right now into out, as
+     * {@link ActionCodes}, and returns how many there are; only the first
+     * out.length are written. Cards with the same face (the Jokers, copies
+     * from other decks) give one move each. Returns 0 if no game is in
+     * progress.
+     */
+    public int legalActions(int[] out) {
+        gameLock.lock();
         try {
-            Thread.sleep(1500);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+            if (defaultGame == null || defaultGame.getPhase() != GameState.Phase.PLAYING
+                    || defaultGame.isGameOver())
+                return 0;
+
+            Player p = defaultGame.getCurrentPlayer();
+            List<Card> hand = p.getHand();
+            List<Card> buffer = defaultGame.getTempBuffer();
+            int n = 0;
+            switch (defaultGame.getEffectState()) {
+                case NONE: {
+                    if (!defaultGame.isHasDrawn()
+                            && (!defaultGame.getDrawPile().isEmpty() || !defaultGame.getDiscardPile().isEmpty()))
+                        n = put(out, n, ActionCodes.encode(ActionCodes.DRAW, 0));
+                    boolean canDiscard = !defaultGame.isHasPlayedToStack() && !defaultGame.isHasDiscarded();
+                    for (int i = 0; i < hand.size(); i++) {
+                        if (isRepeat(hand, i))
+                            continue;
+                        if (canStack(p, hand.get(i)))
+                            n = put(out, n, ActionCodes.encode(ActionCodes.PLAY, i));
+                        if (canDiscard)
+                            n = put(out, n, ActionCodes.encode(ActionCodes.DISCARD, i));
+                    }
+                    if (defaultGame.isHasDrawn())
+                        n = put(out, n, ActionCodes.encode(ActionCodes.SKIP, 0));
+                    break;
+                }
+                case QUEEN_PICK:
+                case QUEEN_ORDER:
+                    for (int i = 0; i < buffer.size(); i++)
+                        n = put(out, n, ActionCodes.encode(ActionCodes.PICK, i));
+                    break;
+                case JOKER_CHOICE_MODE:
+                    n = put(out, n, ActionCodes.encode(ActionCodes.MODE, 0));
+                    n = put(out, n, ActionCodes.encode(ActionCodes.MODE, 1));
+                    break;
+                case JOKER_PICK:
+                    for (int i = 0; i < buffer.size(); i++) {
+                        if (!defaultGame.isJokerModeToStack() || canStack(p, buffer.get(i)))
+                            n = put(out, n, ActionCodes.encode(ActionCodes.PICK, i));
+                    }
+                    break;
+                case SELECT_TARGET:
+                    for (int i = 0; i < defaultGame.getPlayers().size(); i++) {
+                        if (i != defaultGame.getCurrentPlayerIndex())
+                            n = put(out, n, ActionCodes.encode(ActionCodes.TARGET, i));
+                    }
+                    break;
+                case EIGHT_CHOOSE_SOURCE: {
+                    Player target = defaultGame.findPlayer(defaultGame.getEightTargetPlayerId());
+                    if (target != null && !target.getHand().isEmpty())
+                        n = put(out, n, ActionCodes.encode(ActionCodes.SOURCE, 0));
+                    if (target != null && target.getStack().size() > 1)
+                        n = put(out, n, ActionCodes.encode(ActionCodes.SOURCE, 1));
+                    // Always accepted; ends the effect even with nothing to take
+                    n = put(out, n, ActionCodes.encode(ActionCodes.SOURCE, 2));
+                    break;
+                }
+                case EIGHT_PICK_CARD: {
+                    // A blind pick, so every index counts, identical cards or not
+                    Player target = defaultGame.findPlayer(defaultGame.getEightTargetPlayerId());
+                    int size = (target != null) ? target.getHand().size() : 0;
+                    for (int i = 0; i < size; i++)
+                        n = put(out, n, ActionCodes.encode(ActionCodes.PICK, i));
+                    break;
+                }
+                case JOKER_STACK_VALUE: {
+                    Card.Rank below = rankBelowJoker(p);
+                    for (Card.Rank rank : Card.Rank.values()) {
+                        if (StackChainPlanner.isJokerRank(rank)
+                                && (below == null || Math.abs(rank.ordinal() - below.ordinal()) == 1))
+                            n = put(out, n, ActionCodes.encode(ActionCodes.RANK, rank.ordinal()));
+                    }
+                    break;
+                }
+                case SEVEN_PASS_CARD:
+                    for (int i = 0; i < hand.size(); i++) {
+                        if (!isRepeat(hand, i))
+                            n = put(out, n, ActionCodes.encode(ActionCodes.PICK, i));
+                    }
+                    break;
+            }
+            return n;
+        } finally {
+            gameLock.unlock();
         }
+    }
+
+    /**
+     * Plays every consecutive CPU turn until a human is to move, the game is
+     * over or MAX_CPU_STEPS is reached, and returns the steps as a timeline.
+     * Each step is also published as a CPU_STEP event.
+     *
+     * The game lock is held for one step at a time, so requests can get in
+     * between steps. If one of them changes the game, the CPU turns stop
+     * there; whoever changed it carries on from the new state.
+     *
+     * In search mode the lock is let go while the search runs, and its move
+     * is only played if the game is still at the version it searched.
+     */
+    public List<CpuStep> runCpuTurns() {
+        List<CpuStep> timeline = new ArrayList<>();
+        GameState game = null; // The game these turns are for
+        long version = -1; // Its version after our last change
+        while (timeline.size() < MAX_CPU_STEPS) {
+            MctsPlanner.Search search;
+            gameLock.lock();
+            try {
+                if (!cpuToMove(game, version))
+                    break;
+                game = defaultGame;
+                if (!useSearch()) {
+                    version = cpuStep(timeline, defaultGame.getCurrentPlayer(), -1);
+                    continue;
+                }
+                search = prepareCpuSearch(defaultGame.getCurrentPlayer());
+                version = defaultGame.getStateVersion();
+            } finally {
+                gameLock.unlock();
+            }
 
-        executeCpuStep(current);
+            int move = search.run();
+            gameLock.lock();
+            try {
+                if (!cpuToMove(game, version))
+                    break;
+                version = cpuStep(timeline, defaultGame.getCurrentPlayer(), move);
+            } finally {
+                gameLock.unlock();
+            }
+        }
+
+        if (timeline.size() >= MAX_CPU_STEPS) {
+            System.err.println("GameService: CPU turns stopped after " + MAX_CPU_STEPS + " steps");
+        }
+        return timeline;
+    }
+
+    // True if a CPU is to move and, after our first step, nothing but our
+    // own steps changed the game. Caller holds the lock
+    private boolean cpuToMove(GameState game, long version) {
+        if (defaultGame == null || defaultGame.getPhase() != GameState.Phase.PLAYING || defaultGame.isGameOver())
+            return false;
+        if (game != null && (defaultGame != game || defaultGame.getStateVersion() != version))
+            return false;
+        return !defaultGame.getCurrentPlayer().isPc(); // Otherwise a human is to move
     }
 
-    private void executeCpuStep(Player cpu) {
+    // One CPU step, added to the timeline and published; returns the new version
+    private long cpuStep(List<CpuStep> timeline, Player cpu, int planned) {
+        executeCpuStep(cpu, planned);
+        changed();
+
+        CpuStep step = new CpuStep(timeline.size(), (long) timeline.size() * CPU_STEP_PACE_MS,
+                cpu.getId(), cpu.getName(), defaultGame.getLastAction(),
+                defaultGame.getGameMessage(), defaultGame.getStateVersion());
+        timeline.add(step);
+        publish(GameEvent.CPU_STEP, step);
+        return defaultGame.getStateVersion();
+    }
+
+    // Sets up the search for the CPU's next move: draws first if its turn
+    // has just started (a change of its own), then weights the moves with
+    // its brain. Caller holds the lock
+    private MctsPlanner.Search prepareCpuSearch(Player cpu) {
+        List<Double> outputs = null; // Effect choices have no brain output
+        if (defaultGame.getEffectState() == GameState.EffectState.NONE) {
+            if (!defaultGame.isHasDrawn()) {
+                cpuDraw(cpu);
+                changed();
+            }
+            outputs = brain(cpu.getBrainVersion()).feedForward(features.inputs(cpu));
+        }
+        int count = Math.min(legalActions(legalRow), legalRow.length);
+        return mctsPlanner().prepare(defaultGame, java.util.Arrays.copyOf(legalRow, count), outputs);
+    }
+
+    // planned is the searched move (see ActionCodes), or -1 to let the brain
+    // and heuristics decide
+    private void executeCpuStep(Player cpu, int planned) {
         // Skip if somehow called for human player
         if (cpu.isPc()) {
             defaultGame.setCpuTurnPending(false);
@@ -996,20 +1649,37 @@ public class GameService {
         if (defaultGame.isGameOver())
             return;
 
+        // An effect left open by the previous step (e.g. a Joker played to the
+        // stack) must be resolved first; give up on it if the CPU cannot. A
+        // searched choice may leave another one open for the next step
+        if (defaultGame.getEffectState() != GameState.EffectState.NONE) {
+            if (planned >= 0 && applyCode(cpu.getId(), planned))
+                return;
+            GameState.EffectState open = defaultGame.getEffectState();
+            resolveCpuEffect(cpu);
+            if (defaultGame.getEffectState() == open && defaultGame.getCurrentPlayer() == cpu) {
+                defaultGame.setEffectState(GameState.EffectState.NONE);
+                endTurn();
+            }
+            return;
+        }
+
         // 1. Draw Step (Rules: Start of turn always draw if not drawn)
         if (!defaultGame.isHasDrawn()) {
-            if (defaultGame.getDrawPile().isEmpty())
-                reshuffleDeck();
-            if (!defaultGame.getDrawPile().isEmpty()) {
-                cpu.getHand().add(defaultGame.getDrawPile().pop());
-                defaultGame.setHasDrawn(true);
-                defaultGame.setLastAction(cpu.getName() + " drew a card.");
-            }
+            cpuDraw(cpu);
         }
 
         // 2. Brain Decision
-        List<Double> inputs = com.aces.game.ai.AiInputMapper.extractInputs(defaultGame, cpu);
-        List<Double> outputs = com.aces.game.ai.GlobalAi.getInstance().feedForward(inputs);
+        com.aces.game.ai.NeuralNetwork brain = brain(cpu.getBrainVersion());
+        if (simulation) {
+            // Playouts only need the action: primitive rows, no allocation
+            features.extract(Math.max(0, features.seatOf(cpu)), featureRow, 0);
+            brain.feedForward(featureRow, 0, featureRow.length, outputRow, 0);
+            playCpuAction(cpu, bestIndex(outputRow, brain.getOutputLayer().size()));
+            return;
+        }
+        List<Double> inputs = features.inputs(cpu);
+        List<Double> outputs = brain.feedForward(inputs);
 
         // Find best action
         int action = 0;
@@ -1021,12 +1691,44 @@ public class GameService {
             }
         }
 
+        // In search mode the outputs only weight the moves; the search picked one
+        if (planned >= 0 && MctsPlanner.category(cpu, planned) >= 0) {
+            action = MctsPlanner.category(cpu, planned);
+        }
+
+        trainingEpisode.record(cpu.getId(), inputs, action);
+        com.aces.game.ai.DecisionSnapshot decision = com.aces.game.ai.DecisionSnapshot.of(cpu.getId(), inputs,
+                brain.getLastStrategyValues(), outputs, action);
+        lastDecisions.put(cpu.getId(), decision);
+        publish(GameEvent.AI, decision);
+
+        // An effect the move opens is the next step, with a search of its own
+        if (planned >= 0 && applyCode(cpu.getId(), planned)) {
+            if (!defaultGame.isGameOver())
+                defaultGame.setCpuTurnPending(!defaultGame.getCurrentPlayer().isPc());
+            return;
+        }
+
+        playCpuAction(cpu, action);
+    }
+
+    private static int bestIndex(double[] values, int length) {
+        int best = 0;
+        for (int i = 1; i < length; i++) {
+            if (values[i] > values[best])
+                best = i;
+        }
+        return best;
+    }
+
+    // Carries out the brain's choice with the heuristics for which card
+    private void playCpuAction(Player cpu, int action) {
         /* ACTIONS: 0: PASS, 1: STACK, 2: SKIP, 3: ATTACK, 4: NORMAL */
 
         if (action == 1) { // PLAY STACK
             int idx = findBestPlayToStack(cpu);
             if (idx != -1) {
-                playToStack(cpu.getId(), idx);
+                doPlayToStack(cpu.getId(), idx);
                 if (defaultGame.isGameOver())
                     return;
                 defaultGame.setCpuTurnPending(true);
@@ -1042,7 +1744,7 @@ public class GameService {
                     idx = findBestDiscard(cpu, "NORMAL");
 
                 if (idx != -1) {
-                    discardAndEffect(cpu.getId(), idx);
+                    doDiscardAndEffect(cpu.getId(), idx);
                     while (defaultGame.getEffectState() != GameState.EffectState.NONE) {
                         resolveCpuEffect(cpu);
                     }
@@ -1057,18 +1759,29 @@ public class GameService {
 
         // Fallback / Pass
         if (defaultGame.isHasPlayedToStack()) {
-            skipTurn(cpu.getId());
+            doSkipTurn(cpu.getId());
         } else {
             if (!cpu.getHand().isEmpty()) {
                 int idx = findBestDiscard(cpu, "NORMAL");
                 if (idx != -1) {
-                    discardAndEffect(cpu.getId(), idx);
+                    doDiscardAndEffect(cpu.getId(), idx);
                     while (defaultGame.getEffectState() != GameState.EffectState.NONE)
                         resolveCpuEffect(cpu);
                     return;
                 }
             }
-            skipTurn(cpu.getId());
+            doSkipTurn(cpu.getId());
+        }
+    }
+
+    private void cpuDraw(Player cpu) {
+        if (defaultGame.getDrawPile().isEmpty())
+            reshuffleDeck();
+        if (!defaultGame.getDrawPile().isEmpty()) {
+            cpu.getHand().add(defaultGame.getDrawPile().pop());
+            cardsMoved(cpu);
+            defaultGame.setHasDrawn(true);
+            defaultGame.setLastAction(Message.Code.CPU_DREW, cpu);
         }
     }
 
@@ -1077,22 +1790,20 @@ public class GameService {
             case QUEEN_PICK:
                 // Pick index 0
                 if (!defaultGame.getTempBuffer().isEmpty()) {
-                    handleInteraction(cpu.getId(), "0");
+                    doEffect(cpu.getId(), ActionCodes.encode(ActionCodes.PICK, 0));
                 }
                 break;
             case JOKER_PICK:
                 if (!defaultGame.getTempBuffer().isEmpty()) {
-                    handleInteraction(cpu.getId(), "0");
+                    doEffect(cpu.getId(), ActionCodes.encode(ActionCodes.PICK, 0));
                 }
                 break;
             case SELECT_TARGET:
                 // Target Human (Player 1) or Random
-                Player target = defaultGame.getPlayers().stream()
-                        .filter(p -> !p.getId().equals(cpu.getId()))
-                        .findAny().orElse(null);
+                int targetSeat = (defaultGame.getCurrentPlayerIndex() == 0) ? 1 : 0;
 
-                if (target != null) {
-                    handleInteraction(cpu.getId(), target.getId());
+                if (targetSeat < defaultGame.getPlayers().size()) {
+                    doEffect(cpu.getId(), ActionCodes.encode(ActionCodes.TARGET, targetSeat));
                 } else {
                     // Fallback
                     defaultGame.setEffectState(GameState.EffectState.NONE);
@@ -1100,45 +1811,18 @@ public class GameService {
                 }
                 break;
             case JOKER_STACK_VALUE:
-                // CPU must choose a value for the Joker
-                // Find a valid adjacent rank to the card below (at size-2)
-                // Joker is already on top, so look at one below
-                Card below = null;
-                if (cpu.getStack().size() >= 2) {
-                    below = cpu.getStack().get(cpu.getStack().size() - 2);
-                }
+                // CPU must choose a value for the Joker: the valid one
+                // closest to the Ace (the Joker ends the turn, so nothing
+                // else from the hand goes on it now)
+                Card.Rank value = StackChainPlanner.bestJokerValue(rankBelowJoker(cpu));
+                Card.Rank choice = (value != null) ? value : Card.Rank.SEVEN; // Default fallback
 
-                String choice = "SEVEN"; // Default fallback
-                if (below != null) {
-                    // Try to pick one that allows next play? Or just any valid adjacent.
-                    // Simple logic: pick upper adjacent if valid
-                    int ord = below.getRank().ordinal();
-                    // Try upper
-                    if (ord < Card.Rank.values().length - 1) {
-                        Card.Rank upper = Card.Rank.values()[ord + 1];
-                        if (upper != Card.Rank.TWO && upper != Card.Rank.ACE && upper != Card.Rank.KING
-                                && upper != Card.Rank.JOKER) {
-                            choice = upper.name();
-                        }
-                    }
-                    // Try lower if upper invalid
-                    if (choice.equals("SEVEN")) {
-                        if (ord > 0) {
-                            Card.Rank lower = Card.Rank.values()[ord - 1];
-                            if (lower != Card.Rank.TWO && lower != Card.Rank.ACE && lower != Card.Rank.KING
-                                    && lower != Card.Rank.JOKER) {
-                                choice = lower.name();
-                            }
-                        }
-                    }
-                }
-
-                handleInteraction(cpu.getId(), choice);
+                doEffect(cpu.getId(), ActionCodes.encode(ActionCodes.RANK, choice.ordinal()));
                 break;
             case SEVEN_PASS_CARD:
                 // CPU gives first card in hand
                 if (!cpu.getHand().isEmpty()) {
-                    handleInteraction(cpu.getId(), "0");
+                    doEffect(cpu.getId(), ActionCodes.encode(ActionCodes.PICK, 0));
                 } else {
                     // Should not happen if logic is correct, but safe fallback
                     defaultGame.setEffectState(GameState.EffectState.NONE);
@@ -1148,7 +1832,7 @@ public class GameService {
             case QUEEN_ORDER:
                 // CPU orders cards: pick 0 to be on top
                 if (!defaultGame.getTempBuffer().isEmpty()) {
-                    handleInteraction(cpu.getId(), "0");
+                    doEffect(cpu.getId(), ActionCodes.encode(ActionCodes.PICK, 0));
                 } else {
                     defaultGame.setEffectState(GameState.EffectState.NONE);
                     defaultGame.nextTurn();
@@ -1157,26 +1841,23 @@ public class GameService {
             case EIGHT_CHOOSE_SOURCE:
                 // Intelligent CPU choice for stealing
                 // Prioritize Stack (if valid) > Hand > Discard
-                String targetId = defaultGame.getEightTargetPlayerId();
-                Player eightTarget = defaultGame.getPlayers().stream()
-                        .filter(pl -> pl.getId().equals(targetId))
-                        .findFirst().orElse(null);
+                Player eightTarget = defaultGame.findPlayer(defaultGame.getEightTargetPlayerId());
 
-                String sourceChoice = "hand"; // Default
+                int sourceChoice = 0; // Default: hand
                 if (eightTarget != null) {
                     if (eightTarget.getStack().size() > 1) {
-                        sourceChoice = "stack";
+                        sourceChoice = 1; // stack
                     } else if (!eightTarget.getHand().isEmpty()) {
-                        sourceChoice = "hand";
+                        sourceChoice = 0;
                     } else if (!eightTarget.getDiscardPile().isEmpty()) {
-                        sourceChoice = "discard";
+                        sourceChoice = 2; // discard
                     }
                 }
-                handleInteraction(cpu.getId(), sourceChoice);
+                doEffect(cpu.getId(), ActionCodes.encode(ActionCodes.SOURCE, sourceChoice));
                 break;
             case EIGHT_PICK_CARD:
                 // Blind pick from hand (always pick index 0 for now)
-                handleInteraction(cpu.getId(), "0");
+                doEffect(cpu.getId(), ActionCodes.encode(ActionCodes.PICK, 0));
                 break;
             default:
                 defaultGame.setEffectState(GameState.EffectState.NONE);
@@ -1184,17 +1865,88 @@ public class GameService {
         }
     }
 
+    private boolean useSearch() {
+        return !simulation && "mcts".equalsIgnoreCase(cpuMode);
+    }
+
+    private MctsPlanner mctsPlanner() {
+        if (mctsPlanner == null) {
+            mctsPlanner = new MctsPlanner(mctsTimeMs, mctsMaxNodes, mctsThreads);
+        }
+        return mctsPlanner;
+    }
+
+    private com.aces.game.ai.NeuralNetwork brain(int version) {
+        if (simBrains == null)
+            return com.aces.game.ai.BrainRegistry.get(version);
+        return simBrains.computeIfAbsent(version, v -> com.aces.game.ai.BrainRegistry.get(v).copy());
+    }
+
+    // --- Search support (called by MctsPlanner on simulation instances) ---
+
+    void load(GameState state) {
+        defaultGame = state;
+        features.reset(state);
+    }
+
+    // Draws for the player to move if their turn has just started
+    void beginCpuTurn() {
+        if (!defaultGame.isGameOver() && defaultGame.getEffectState() == GameState.EffectState.NONE
+                && !defaultGame.isHasDrawn()) {
+            cpuDraw(defaultGame.getCurrentPlayer());
+        }
+    }
+
+    boolean apply(int code) {
+        return applyCode(defaultGame.getCurrentPlayer().getId(), code);
+    }
+
+    // Ends an effect the player to move has no legal choice for
+    void abandonEffect() {
+        defaultGame.setEffectState(GameState.EffectState.NONE);
+        endTurn();
+    }
+
+    void playoutStep() {
+        executeCpuStep(defaultGame.getCurrentPlayer(), -1);
+    }
+
+    // True if a card with the same face comes earlier in the list
+    private static boolean isRepeat(List<Card> cards, int index) {
+        Card c = cards.get(index);
+        for (int i = 0; i < index; i++) {
+            if (cards.get(i).isSameFace(c))
+                return true;
+        }
+        return false;
+    }
+
+    private static int put(int[] out, int count, int code) {
+        if (count < out.length)
+            out[count] = code;
+        return count + 1;
+    }
+
     // --- AI Heuristics ---
 
+    // First card of the best chain of stack plays, or -1 if stopping is best
     private int findBestPlayToStack(Player p) {
-        Card top = p.getTopStack();
+        StackChainPlanner.Plan plan = StackChainPlanner.plan(p);
+        if (plan != null) {
+            if (plan.isEmpty())
+                return -1;
+            for (int i = 0; i < p.getHand().size(); i++) {
+                if (p.getHand().get(i).getRank() == plan.first())
+                    return i;
+            }
+        }
+
+        // Joker on top with no value yet: anything fits, take the best card
         int bestIdx = -1;
         int bestVal = -1;
         for (int i = 0; i < p.getHand().size(); i++) {
             Card c = p.getHand().get(i);
-            boolean valid = (top == null) ? (c.getRank() != Card.Rank.ACE && c.getRank() != Card.Rank.JOKER)
-                    : isSequenceValid(p, top, c);
-            if (valid) {
+            if (canStack(p, c)) {
                 int val = getAiCardValue(c);
                 if (val > bestVal) {
                     bestVal = val;
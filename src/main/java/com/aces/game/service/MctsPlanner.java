@@ -0,0 +1,424 @@
+package com.aces.game.service;
+
+import com.aces.game.ai.NeuralNetwork;
+import com.aces.game.domain.Card;
+import com.aces.game.domain.DrawPile;
+import com.aces.game.domain.GameState;
+import com.aces.game.domain.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monte Carlo Tree Search over a CPU's actual moves: every play, discard,
+ * pass and effect choice (aces.cpu.mode=mcts).
+ *
+ * The CPU cannot see other hands or the draw order, so the search never
+ * uses them: every playout runs on a fresh determinization, a random deal
+ * of the unseen cards that agrees with everything the CPU can see (see
+ * {@link #determinize}). One tree per worker collects the statistics of all
+ * its deals (information-set MCTS, with availability counts in place of
+ * parent visits), and the root visit counts of the workers' trees are added
+ * up to pick the move.
+ *
+ * The brain's outputs are the prior for the root moves, and rollouts play
+ * every seat with the regular CPU step. A search ends at its time budget or
+ * when its trees reach the node budget, whichever comes first. It is
+ * prepared under the game lock and run without it (see GameService
+ * runCpuTurns).
+ */
+class MctsPlanner {
+
+    private static final double EXPLORATION = 1.4;
+    // Value assumed for a move not tried yet
+    private static final double FIRST_PLAY_VALUE = 0.5;
+    // How strongly brain outputs separate the root priors
+    private static final double PRIOR_SHARPNESS = 4.0;
+    private static final int ROLLOUT_STEPS = 30;
+    // Time allowed on top of the budget for workers to hand back their trees
+    private static final long COLLECT_GRACE_MS = 50;
+    // Furthest a stack can be from its Ace (a 7 or an 8)
+    private static final int MAX_ACE_DISTANCE = 6;
+
+    private final long budgetMs;
+    private final int maxNodes;
+    private final int threads;
+    private final ExecutorService workers;
+
+    MctsPlanner(long budgetMs, int maxNodes, int threads) {
+        this.budgetMs = Math.max(1, budgetMs);
+        this.maxNodes = Math.max(1, maxNodes);
+        this.threads = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        this.workers = Executors.newFixedThreadPool(this.threads, new WorkerThreads());
+    }
+
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Sets up a search for the player to move among the legal moves (see
+     * {@link ActionCodes}). brainOutputs may be null (uniform prior). Called
+     * under the game lock: everything the search needs from the game is
+     * copied here, so {@link Search#run} can go without it.
+     */
+    Search prepare(GameState game, int[] legal, List<Double> brainOutputs) {
+        if (legal.length <= 1)
+            return new Search(legal, null, -1, List.of());
+
+        double[] priors = priors(game.getCurrentPlayer(), legal, brainOutputs);
+        List<GameState> roots = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            // The worker only ever plays on determinizations of its copy,
+            // never on its hidden cards
+            GameState root = game.copy();
+            for (Player p : root.getPlayers()) {
+                p.setPc(false); // Rollouts play every seat as a CPU
+            }
+            roots.add(root);
+        }
+        return new Search(legal, priors, game.getCurrentPlayerIndex(), roots);
+    }
+
+    /** A prepared search; it only reads its own copies of the game. */
+    final class Search {
+        private final int[] legal;
+        private final double[] priors;
+        private final int observer;
+        private final List<GameState> roots; // One per worker
+
+        private Search(int[] legal, double[] priors, int observer, List<GameState> roots) {
+            this.legal = legal;
+            this.priors = priors;
+            this.observer = observer;
+            this.roots = roots;
+        }
+
+        /**
+         * Runs the search for the time budget and returns the move picked,
+         * or -1 if it could not run.
+         */
+        int run() {
+            if (legal.length == 0)
+                return -1;
+            if (legal.length == 1)
+                return legal[0];
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+            int nodesPerTree = Math.max(legal.length + 1, maxNodes / threads);
+            List<Future<int[]>> trees = new ArrayList<>(roots.size());
+            for (GameState root : roots) {
+                trees.add(workers.submit(() -> search(root, observer, legal, priors, deadline, nodesPerTree)));
+            }
+
+            int[] visits = new int[legal.length];
+            for (Future<int[]> tree : trees) {
+                try {
+                    long waitNs = Math.max(0, deadline - System.nanoTime());
+                    int[] counts = tree.get(TimeUnit.NANOSECONDS.toMillis(waitNs) + COLLECT_GRACE_MS,
+                            TimeUnit.MILLISECONDS);
+                    for (int i = 0; i < visits.length; i++) {
+                        visits[i] += counts[i];
+                    }
+                } catch (Exception e) {
+                    tree.cancel(true);
+                    System.err.println("MctsPlanner: Search tree dropped: " + e);
+                }
+            }
+
+            int best = -1;
+            for (int i = 0; i < visits.length; i++) {
+                if (visits[i] > 0 && (best < 0 || visits[i] > visits[best]))
+                    best = i;
+            }
+            return (best >= 0) ? legal[best] : -1;
+        }
+    }
+
+    /**
+     * Index of the brain output a move belongs to (0: PASS, 1: STACK, 2: SKIP,
+     * 3: ATTACK, 4: NORMAL), or -1 for effect choices. Same grouping as the
+     * heuristic discard categories.
+     */
+    static int category(Player mover, int code) {
+        switch (ActionCodes.kind(code)) {
+            case ActionCodes.SKIP:
+                return 0;
+            case ActionCodes.PLAY:
+                return 1;
+            case ActionCodes.DISCARD:
+                switch (mover.getHand().get(ActionCodes.arg(code)).getRank()) {
+                    case JACK:
+                    case KING:
+                    case FOUR:
+                        return 2;
+                    case TWO:
+                    case JOKER:
+                    case SEVEN:
+                    case EIGHT:
+                        return 3;
+                    default:
+                        return 4;
+                }
+            default:
+                return -1;
+        }
+    }
+
+    private static double[] priors(Player mover, int[] legal, List<Double> brainOutputs) {
+        double[] priors = new double[legal.length];
+        double sum = 0;
+        for (int i = 0; i < priors.length; i++) {
+            int cat = category(mover, legal[i]);
+            priors[i] = (brainOutputs != null && cat >= 0 && cat < brainOutputs.size())
+                    ? Math.exp(PRIOR_SHARPNESS * brainOutputs.get(cat))
+                    : 1.0;
+            sum += priors[i];
+        }
+        for (int i = 0; i < priors.length; i++) {
+            priors[i] /= sum;
+        }
+        return priors;
+    }
+
+    /**
+     * Replaces every card the observer cannot see with a random deal of the
+     * unseen cards. Other seats keep their hand sizes, the draw pile keeps its
+     * size and its face-up bottom card, and every card in view (the
+     * observer's hand, stacks, discards, the effect buffer) stays put.
+     * unseen is scratch space.
+     */
+    static void determinize(GameState world, int observer, Random random, List<Card> unseen) {
+        List<Player> players = world.getPlayers();
+        DrawPile drawPile = world.getDrawPile();
+        int firstHidden = drawPile.isEmpty() ? 0 : 1; // index 0 is the bottom card
+
+        unseen.clear();
+        for (int k = firstHidden; k < drawPile.size(); k++) {
+            unseen.add(drawPile.get(k));
+        }
+        for (int i = 0; i < players.size(); i++) {
+            if (i == observer)
+                continue;
+            List<Card> hand = players.get(i).getHand();
+            for (int k = 0; k < hand.size(); k++) {
+                unseen.add(hand.get(k));
+            }
+        }
+        Collections.shuffle(unseen, random);
+
+        int next = 0;
+        for (int i = 0; i < players.size(); i++) {
+            if (i == observer)
+                continue;
+            List<Card> hand = players.get(i).getHand();
+            for (int k = 0; k < hand.size(); k++) {
+                hand.set(k, unseen.get(next++));
+            }
+        }
+        for (int k = firstHidden; k < drawPile.size(); k++) {
+            drawPile.set(k, unseen.get(next++));
+        }
+    }
+
+    /**
+     * What a worker thread plays its playouts with, kept for every search it
+     * runs: the simulation instance, the state each deal is copied into, and
+     * scratch lists. Playouts then allocate little beyond new tree nodes.
+     */
+    private static final class Workspace {
+        final Map<Integer, NeuralNetwork> brains = new HashMap<>();
+        final GameService sim = new GameService(brains);
+        final GameState state = new GameState();
+        final List<Node> path = new ArrayList<>();
+        final List<Card> unseen = new ArrayList<>();
+        final int[] moves = new int[ActionCodes.MAX_ACTIONS];
+    }
+
+    private static final ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(Workspace::new);
+
+    // One tree over many deals; returns the visit count of each root move
+    private static int[] search(GameState root, int observer, int[] rootMoves, double[] priors,
+            long deadline, int maxNodes) {
+        Random random = ThreadLocalRandom.current();
+        Workspace ws = workspaces.get();
+        // Brains are copied afresh for each search, so training since the
+        // last one is seen
+        ws.brains.clear();
+        GameService sim = ws.sim;
+        Node top = new Node(-1, -1, 1.0);
+        top.children = new ArrayList<>(rootMoves.length);
+        for (int i = 0; i < rootMoves.length; i++) {
+            top.children.add(new Node(rootMoves[i], root.getCurrentPlayerIndex(), priors[i]));
+        }
+        int nodes = 1 + rootMoves.length;
+        List<Node> path = ws.path;
+        int[] moves = ws.moves;
+        GameState state = ws.state;
+
+        while (nodes < maxNodes && System.nanoTime() < deadline) {
+            root.copyInto(state);
+            determinize(state, observer, random, ws.unseen);
+            sim.load(state);
+            path.clear();
+            path.add(top);
+
+            // Selection and expansion: walk down until a move is tried for the first time
+            Node node = top;
+            while (!state.isGameOver()) {
+                int[] legal = (node == top) ? rootMoves : moves;
+                int count = (node == top) ? rootMoves.length : Math.min(sim.legalActions(moves), moves.length);
+                if (count == 0) {
+                    if (state.getEffectState() != GameState.EffectState.NONE)
+                        sim.abandonEffect();
+                    break;
+                }
+                if (node.children == null) {
+                    node.children = new ArrayList<>(count);
+                }
+                int before = node.children.size();
+                Node child = node.select(legal, count, state.getCurrentPlayerIndex());
+                nodes += node.children.size() - before;
+
+                if (!sim.apply(child.action))
+                    break;
+                sim.beginCpuTurn();
+                path.add(child);
+                node = child;
+                if (child.visits == 0)
+                    break;
+            }
+
+            // Rollout with the regular CPU step for every seat
+            for (int step = 0; step < ROLLOUT_STEPS && !state.isGameOver(); step++) {
+                sim.playoutStep();
+            }
+
+            double[] reward = evaluate(state);
+            for (Node n : path) {
+                n.visits++;
+                if (n.mover >= 0)
+                    n.value += reward[n.mover];
+            }
+        }
+
+        int[] visits = new int[rootMoves.length];
+        for (int i = 0; i < visits.length; i++) {
+            visits[i] = top.children.get(i).visits;
+        }
+        return visits;
+    }
+
+    /**
+     * Reward in [0, 1] per seat: 1 for the winner and 0 for the rest once the
+     * game is over, otherwise how much closer to its Ace a seat's stack is
+     * than the best of the others'.
+     */
+    static double[] evaluate(GameState game) {
+        List<Player> players = game.getPlayers();
+        double[] reward = new double[players.size()];
+        if (game.isGameOver() && game.getWinner() != null) {
+            int winner = game.seatOf(game.getWinner().getId());
+            if (winner >= 0)
+                reward[winner] = 1.0;
+            return reward;
+        }
+
+        double[] progress = new double[players.size()];
+        for (int i = 0; i < progress.length; i++) {
+            progress[i] = progress(players.get(i));
+        }
+        for (int i = 0; i < reward.length; i++) {
+            double bestOther = 0;
+            for (int j = 0; j < progress.length; j++) {
+                if (j != i)
+                    bestOther = Math.max(bestOther, progress[j]);
+            }
+            reward[i] = 0.5 + 0.5 * (progress[i] - bestOther);
+        }
+        return reward;
+    }
+
+    // 1.0 when the Ace fits on the stack next, 0.0 when it is furthest away
+    private static double progress(Player p) {
+        Card top = p.getTopStack();
+        if (top == null)
+            return 0;
+        Card.Rank rank = (top.getRank() == Card.Rank.JOKER) ? p.getJokerStackValue() : top.getRank();
+        if (rank == null || rank == Card.Rank.ACE || rank == Card.Rank.JOKER)
+            return 0.5;
+        int distance = StackChainPlanner.aceDistance(rank);
+        return 1.0 - (double) (Math.min(distance, MAX_ACE_DISTANCE) - 1) / (MAX_ACE_DISTANCE - 1);
+    }
+
+    private static final class Node {
+        final int action; // See ActionCodes
+        final int mover; // Seat that made the move leading here
+        final double prior;
+        int visits;
+        int available; // Playouts in which this move was legal
+        double value;
+        List<Node> children;
+
+        Node(int action, int mover, double prior) {
+            this.action = action;
+            this.mover = mover;
+            this.prior = prior;
+        }
+
+        /**
+         * Child with the best PUCT score among the moves legal in this
+         * playout's deal. Moves not seen here before (other deals allow other
+         * moves) are added with a uniform prior. Exploration grows with how
+         * often a move was available rather than with the parent's visits.
+         */
+        Node select(int[] legal, int count, int seat) {
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                Node child = find(legal[i]);
+                if (child == null) {
+                    child = new Node(legal[i], seat, 1.0 / count);
+                    children.add(child);
+                }
+                child.available++;
+                double q = (child.visits == 0) ? FIRST_PLAY_VALUE : child.value / child.visits;
+                double score = q + EXPLORATION * child.prior * Math.sqrt(child.available) / (1 + child.visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        private Node find(int action) {
+            for (Node c : children) {
+                if (c.action == action)
+                    return c;
+            }
+            return null;
+        }
+    }
+
+    private static final class WorkerThreads implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "mcts-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.aces.game.service;
+
+import com.aces.game.domain.Card;
+import com.aces.game.domain.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plans a whole turn of stack plays at once: the order of cards from the hand
+ * that leaves the stack closest to its Ace (up through the King or down
+ * through the 2 back door), winning outright when the Ace can be reached.
+ * A Joker ends the turn, so it is only ever the last card of a chain, and
+ * the plan includes the value it should stand for.
+ *
+ * Only ranks matter for stacking, so a hand is reduced to its rank counts.
+ * Plans are memoized on (top rank, rank counts); the result does not depend
+ * on who holds the hand, so the memo is shared by every seat and thread and
+ * each later play of a chain is a lookup.
+ */
+final class StackChainPlanner {
+
+    /**
+     * Ranks to play in order (empty if playing nothing is best), and the value
+     * for a Joker that ends the chain, if any.
+     */
+    record Plan(List<Card.Rank> ranks, Card.Rank jokerValue, int score) {
+        boolean isEmpty() {
+            return ranks.isEmpty();
+        }
+
+        Card.Rank first() {
+            return ranks.get(0);
+        }
+    }
+
+    private static final int NO_TOP = 15; // Empty stack
+    private static final int RANKS = Card.Rank.values().length;
+    private static final int WIN_SCORE = 10_000;
+    private static final int DISTANCE_WEIGHT = 100; // Per step from the Ace; each card played costs 1
+    private static final int MAX_MEMO = 200_000;
+    private static final int MAX_COUNT = 7; // Three bits per rank in the key
+
+    private static final Map<Long, Plan> memo = new ConcurrentHashMap<>();
+
+    private StackChainPlanner() {
+    }
+
+    /**
+     * Best chain for the player's hand on their current stack, or null if the
+     * stack top is a Joker without a chosen value (anything fits on it).
+     */
+    static Plan plan(Player p) {
+        Card top = p.getTopStack();
+        int topRank;
+        if (top == null) {
+            topRank = NO_TOP;
+        } else if (top.getRank() == Card.Rank.JOKER) {
+            if (p.getJokerStackValue() == null)
+                return null;
+            topRank = p.getJokerStackValue().ordinal();
+        } else {
+            topRank = top.getRank().ordinal();
+        }
+
+        int[] counts = new int[RANKS];
+        for (Card c : p.getHand()) {
+            counts[c.getRank().ordinal()] = Math.min(MAX_COUNT, counts[c.getRank().ordinal()] + 1);
+        }
+        return best(topRank, counts);
+    }
+
+    /**
+     * Steps left to the Ace from a stack topped by the given rank, taking the
+     * shorter way round. An empty stack is further than any rank.
+     */
+    static int aceDistance(Card.Rank rank) {
+        if (rank == null || rank == Card.Rank.JOKER)
+            return Card.Rank.ACE.ordinal();
+        int up = Card.Rank.ACE.ordinal() - rank.ordinal(); // ... Q, K, A
+        int down = rank.ordinal() - Card.Rank.TWO.ordinal() + 1; // ... 3, 2, A (back door)
+        return Math.min(up, down);
+    }
+
+    // Ranks a Joker on the stack may stand for
+    static boolean isJokerRank(Card.Rank rank) {
+        return rank != Card.Rank.TWO && rank != Card.Rank.ACE && rank != Card.Rank.KING
+                && rank != Card.Rank.JOKER;
+    }
+
+    /**
+     * Value closest to the Ace that a Joker played on the given rank may
+     * stand for, or null if there is none.
+     */
+    static Card.Rank bestJokerValue(Card.Rank below) {
+        Card.Rank best = null;
+        for (Card.Rank r : Card.Rank.values()) {
+            if (!isJokerRank(r) || (below != null && Math.abs(r.ordinal() - below.ordinal()) != 1))
+                continue;
+            if (best == null || aceDistance(r) < aceDistance(best))
+                best = r;
+        }
+        return best;
+    }
+
+    private static Plan best(int top, int[] counts) {
+        long key = top;
+        for (int r = 0; r < RANKS; r++) {
+            key |= (long) counts[r] << (4 + 3 * r);
+        }
+        Plan cached = memo.get(key);
+        if (cached != null)
+            return cached;
+
+        Plan best = new Plan(Collections.emptyList(), null, stopScore(top));
+        for (int r = 0; r < RANKS; r++) {
+            if (counts[r] == 0 || !fits(top, r))
+                continue;
+
+            Card.Rank rank = Card.Rank.values()[r];
+            Plan candidate;
+            if (rank == Card.Rank.ACE) {
+                candidate = new Plan(List.of(rank), null, WIN_SCORE - 1);
+            } else if (rank == Card.Rank.JOKER) {
+                Card.Rank value = bestJokerValue(Card.Rank.values()[top]);
+                if (value == null)
+                    continue;
+                candidate = new Plan(List.of(rank), value, stopScore(value.ordinal()) - 1);
+            } else {
+                counts[r]--;
+                Plan rest = best(r, counts);
+                counts[r]++;
+                List<Card.Rank> ranks = new ArrayList<>(rest.ranks().size() + 1);
+                ranks.add(rank);
+                ranks.addAll(rest.ranks());
+                candidate = new Plan(ranks, rest.jokerValue(), rest.score() - 1);
+            }
+            if (candidate.score() > best.score())
+                best = candidate;
+        }
+
+        if (memo.size() >= MAX_MEMO) {
+            memo.clear();
+        }
+        memo.put(key, best);
+        return best;
+    }
+
+    private static int stopScore(int top) {
+        Card.Rank rank = (top == NO_TOP) ? null : Card.Rank.values()[top];
+        return -DISTANCE_WEIGHT * aceDistance(rank);
+    }
+
+    // Same rules as GameService.canStack, on ranks
+    private static boolean fits(int top, int rank) {
+        int ace = Card.Rank.ACE.ordinal();
+        int joker = Card.Rank.JOKER.ordinal();
+        if (top == NO_TOP)
+            return rank != ace && rank != joker;
+        if (rank == joker)
+            return true;
+        if (top == Card.Rank.TWO.ordinal() && rank == ace)
+            return true;
+        return Math.abs(rank - top) == 1;
+    }
+}
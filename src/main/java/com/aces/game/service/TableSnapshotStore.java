@@ -0,0 +1,186 @@
+package com.aces.game.service;
+
+import com.aces.game.domain.GameState;
+import com.aces.game.domain.GameStateCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the live table in a memory-mapped file so it survives a restart or
+ * crash. After each turn the game is encoded with {@link GameStateCodec}
+ * (under the game lock; a few hundred bytes) and copied into the file on a
+ * background thread. On startup the newest good snapshot is resumed.
+ *
+ * The file has two slots written in turn, each [sequence, length, CRC32,
+ * payload], so a write cut short leaves the previous snapshot intact.
+ * Writes are latest-wins: a slow disk skips turns instead of queueing them.
+ * The OS writes the mapped pages back; they are only forced on shutdown.
+ *
+ * The game message and last action are saved as their codes and
+ * arguments, so a resumed game shows them as it did at the snapshot.
+ *
+ * One file per node (aces.snapshot.file, blank to turn off).
+ */
+@Component
+public class TableSnapshotStore implements GameEventListener {
+
+    static final int SLOT_BYTES = 64 * 1024;
+    static final int SLOT_HEADER_BYTES = 16; // long sequence, int length, int crc
+    private static final int MAX_PAYLOAD = SLOT_BYTES - SLOT_HEADER_BYTES;
+
+    private final GameService gameService;
+    private final FileChannel channel; // null when turned off or the file could not be opened
+    private final MappedByteBuffer map;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "table-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicReference<byte[]> pending = new AtomicReference<>();
+    // Sequence of the newest slot; only touched by the writer thread after startup
+    private long sequence;
+
+    // Turn last snapshotted; only touched under the game lock
+    private GameState lastGame;
+    private int lastTurn = -1;
+    private GameState.Phase lastPhase;
+    private boolean lastGameOver;
+
+    public TableSnapshotStore(GameService gameService, @Value("${aces.snapshot.file:table-snapshot.bin}") String file) {
+        this.gameService = gameService;
+        FileChannel ch = null;
+        MappedByteBuffer m = null;
+        if (file != null && !file.isBlank()) {
+            try {
+                ch = FileChannel.open(Path.of(file), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                m = ch.map(FileChannel.MapMode.READ_WRITE, 0, 2L * SLOT_BYTES);
+            } catch (IOException e) {
+                System.err.println("TableSnapshotStore: Cannot open " + file + ", tables will not be saved! "
+                        + e.getMessage());
+                closeQuietly(ch);
+                ch = null;
+                m = null;
+            }
+        }
+        this.channel = ch;
+        this.map = m;
+        if (map != null) {
+            restore();
+            gameService.addListener(this);
+        }
+    }
+
+    @jakarta.annotation.PreDestroy
+    public void shutdown() {
+        if (map == null)
+            return;
+        gameService.removeListener(this);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        map.force();
+        closeQuietly(channel);
+    }
+
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (!GameEvent.STATE.equals(event.type()) || event.game() == null)
+            return;
+        GameState game = event.game();
+        if (game == lastGame && game.getTurnCount() == lastTurn && game.getPhase() == lastPhase
+                && game.isGameOver() == lastGameOver)
+            return;
+        lastGame = game;
+        lastTurn = game.getTurnCount();
+        lastPhase = game.getPhase();
+        lastGameOver = game.isGameOver();
+
+        byte[] data = GameStateCodec.encode(game);
+        if (data.length > MAX_PAYLOAD) {
+            System.err.println("TableSnapshotStore: Snapshot of " + data.length + " bytes does not fit, skipped.");
+            return;
+        }
+        if (pending.getAndSet(data) == null) {
+            writer.execute(this::writeLatest);
+        }
+    }
+
+    private void writeLatest() {
+        byte[] data = pending.getAndSet(null);
+        if (data == null)
+            return;
+        long seq = sequence + 1;
+        int base = (int) (seq & 1) * SLOT_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        // Sequence last: until it is written the slot still reads as the older one or as damaged
+        map.put(base + SLOT_HEADER_BYTES, data);
+        map.putInt(base + 8, data.length);
+        map.putInt(base + 12, (int) crc.getValue());
+        map.putLong(base, seq);
+        sequence = seq;
+    }
+
+    // Resumes the newest slot that reads back whole, if it holds a game in play
+    private void restore() {
+        long newest = -1;
+        GameState game = null;
+        for (int slot = 0; slot < 2; slot++) {
+            int base = slot * SLOT_BYTES;
+            long seq = map.getLong(base);
+            sequence = Math.max(sequence, seq);
+            if (seq <= newest)
+                continue;
+            byte[] data = readSlot(base);
+            if (data == null)
+                continue;
+            try {
+                game = GameStateCodec.decode(data);
+                newest = seq;
+            } catch (RuntimeException e) {
+                System.err.println("TableSnapshotStore: Skipping unreadable snapshot " + seq + ": " + e.getMessage());
+            }
+        }
+        if (game == null || game.getPhase() != GameState.Phase.PLAYING || game.getPlayers().isEmpty())
+            return;
+        gameService.restoreGame(game);
+        System.out.println("TableSnapshotStore: Resumed table at turn " + game.getTurnCount() + " (snapshot "
+                + newest + ").");
+    }
+
+    private byte[] readSlot(int base) {
+        int length = map.getInt(base + 8);
+        if (length <= 0 || length > MAX_PAYLOAD)
+            return null;
+        byte[] data = new byte[length];
+        map.get(base + SLOT_HEADER_BYTES, data);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        return ((int) crc.getValue() == map.getInt(base + 12)) ? data : null;
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        if (ch == null)
+            return;
+        try {
+            ch.close();
+        } catch (IOException e) {
+            System.err.println("TableSnapshotStore: Failed to close snapshot file: " + e.getMessage());
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package com.aces.game.web;
 
-import com.aces.game.ai.AiInputMapper;
-import com.aces.game.ai.GlobalAi;
+import com.aces.game.ai.BrainRegistry;
+import com.aces.game.ai.BrainSerializer;
+import com.aces.game.ai.DecisionSnapshot;
 import com.aces.game.ai.NeuralNetwork;
 import com.aces.game.domain.GameState;
 import com.aces.game.domain.Player;
 import com.aces.game.service.GameService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.HashMap;
-import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -23,53 +29,82 @@ public class AiController {
         this.gameService = gameService;
     }
 
+    /**
+     * Activations recorded at the CPU's last real decision. Read-only: nothing
+     * is recomputed and the brain is never touched. The weights themselves
+     * are served by {@link #getBrain}; "brainVersion" tells the client when
+     * to refetch them.
+     */
     @GetMapping("/ai/state/{playerId}")
     public Map<String, Object> getAiState(@PathVariable String playerId) {
         Map<String, Object> response = new HashMap<>();
 
-        try {
-            GameState game = gameService.getGame();
-            if (game == null) {
-                System.out.println("AiController: Game is NULL");
-                return response;
-            }
-
-            // Find player
-            Player p = game.getPlayers().stream()
-                    .filter(pl -> pl.getId().equalsIgnoreCase(playerId))
-                    .findFirst().orElse(null);
-
-            // Fallback: Find ANY CPU
-            if (p == null) {
-                System.out.println("AiController: ID " + playerId + " not found. Falling back to first CPU.");
-                p = game.getPlayers().stream().filter(pl -> !pl.isPc()).findFirst().orElse(null);
-            }
-
-            if (p != null) {
-                NeuralNetwork brain = GlobalAi.getInstance();
-
-                // Live Training
-                brain.mutate(0.1, 0.05);
-
-                // Inputs
-                List<Double> inputs = AiInputMapper.extractInputs(game, p);
-
-                // Outputs
-                List<Double> outputs = brain.feedForward(inputs);
-
-                response.put("inputs", inputs);
-                response.put("strategy", brain.getLastStrategyValues());
-                response.put("outputs", outputs);
-                response.put("brain", brain); // Include full structure for visualization
-            } else {
-                System.out.println("AiController: No CPU player found!");
-            }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            response.put("error", e.getMessage());
+        GameState game = gameService.getGame();
+        if (game == null) {
+            System.out.println("AiController: Game is NULL");
+            return response;
         }
 
+        Player p = findPlayer(game, playerId);
+        if (p == null) {
+            System.out.println("AiController: No CPU player found!");
+            return response;
+        }
+
+        response.put("playerId", p.getId());
+        response.put("brainVersion", String.valueOf(BrainRegistry.get(p.getBrainVersion()).getGeneration()));
+
+        DecisionSnapshot decision = gameService.getLastDecision(p.getId());
+        if (decision == null) {
+            // CPU has not made a decision yet this game
+            response.put("pending", true);
+            return response;
+        }
+
+        response.put("inputs", decision.inputs());
+        response.put("strategy", decision.strategy());
+        response.put("outputs", decision.outputs());
+        response.put("action", decision.action());
+        response.put("decidedAt", decision.timestamp());
         return response;
     }
+
+    /**
+     * Full weight structure for the visualizer, tagged with the brain's
+     * generation so clients only download it again after it changes.
+     */
+    @GetMapping("/ai/brain/{playerId}")
+    public ResponseEntity<byte[]> getBrain(@PathVariable String playerId,
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        GameState game = gameService.getGame();
+        Player p = (game != null) ? findPlayer(game, playerId) : null;
+        if (p == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        NeuralNetwork brain = BrainRegistry.get(p.getBrainVersion());
+        String etag = "\"" + brain.getGeneration() + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+
+        byte[] json = BrainSerializer.toJson(brain);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json);
+    }
+
+    private Player findPlayer(GameState game, String playerId) {
+        // Ids are lower case; the visualizer may send them in any case
+        Player p = (playerId != null) ? game.findPlayer(playerId.toLowerCase(Locale.ROOT)) : null;
+
+        // Fallback: Find ANY CPU
+        if (p == null) {
+            System.out.println("AiController: ID " + playerId + " not found. Falling back to first CPU.");
+            p = game.getPlayers().stream().filter(pl -> !pl.isPc()).findFirst().orElse(null);
+        }
+        return p;
+    }
 }
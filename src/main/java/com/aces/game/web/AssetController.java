@@ -0,0 +1,53 @@
+package com.aces.game.web;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the generated {@link CardAtlas} files. Their names carry a content
+ * hash, so they are cached for a year as immutable; a new atlas gets a new
+ * URL.
+ */
+@RestController
+public class AssetController {
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic()
+            .immutable();
+
+    private final CardAtlas atlas;
+
+    public AssetController(CardAtlas atlas) {
+        this.atlas = atlas;
+    }
+
+    @GetMapping("/assets/{name:.+}")
+    public ResponseEntity<byte[]> asset(@PathVariable String name,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (name.equals(atlas.getPngName())) {
+            return ResponseEntity.ok()
+                    .cacheControl(IMMUTABLE)
+                    .contentType(MediaType.IMAGE_PNG)
+                    .body(atlas.getPng());
+        }
+        if (name.equals(atlas.getCssName())) {
+            boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .cacheControl(IMMUTABLE)
+                    .contentType(new MediaType("text", "css"))
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(atlas.getCssGzip());
+            }
+            return response.body(atlas.getCss());
+        }
+        return ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,187 @@
+package com.aces.game.web;
+
+import com.aces.game.domain.Card;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * All card faces plus the card back in one sprite sheet, built once at
+ * startup from static/images/cards.
+ *
+ * Each card is addressed by its {@link Card#getCssClass() CSS class}
+ * ("hearts-ace", "joker", "back"): an element with classes
+ * "card-sprite hearts-ace" shows that card. The sheet and its stylesheet are
+ * named after a hash of their content, so {@link AssetController} can serve
+ * them as immutable. The stylesheet is also kept gzipped; the PNG is not,
+ * since it is already deflate-compressed.
+ */
+@Component
+public class CardAtlas {
+
+    public static final String BACK = "back";
+
+    private static final String IMAGE_DIR = "static/images/cards/";
+    private static final String URL_PREFIX = "/assets/";
+
+    // Half the source resolution, still sharp at 2x for the largest card on screen
+    private static final int CELL_WIDTH = 250;
+    private static final int CELL_HEIGHT = 363;
+    private static final int COLUMNS = 9;
+
+    private final byte[] png;
+    private final byte[] css;
+    private final byte[] cssGzip;
+    private final String pngName;
+    private final String cssName;
+
+    public CardAtlas() {
+        long start = System.currentTimeMillis();
+        Map<String, String> sprites = spriteFiles();
+        int rows = (sprites.size() + COLUMNS - 1) / COLUMNS;
+
+        BufferedImage sheet = new BufferedImage(COLUMNS * CELL_WIDTH, rows * CELL_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = sheet.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+
+        StringBuilder positions = new StringBuilder();
+        int i = 0;
+        for (Map.Entry<String, String> e : sprites.entrySet()) {
+            int col = i % COLUMNS;
+            int row = i / COLUMNS;
+            BufferedImage img = load(e.getValue());
+            if (img != null) {
+                g.drawImage(img, col * CELL_WIDTH, row * CELL_HEIGHT, CELL_WIDTH, CELL_HEIGHT, null);
+            }
+            positions.append(".card-sprite.").append(e.getKey())
+                    .append("{background-position:").append(percent(col, COLUMNS))
+                    .append(' ').append(percent(row, rows)).append("}\n");
+            i++;
+        }
+        g.dispose();
+
+        this.png = encode(sheet);
+        this.pngName = "cards-" + hash(png) + ".png";
+
+        String sheetRule = "background-image:url('" + URL_PREFIX + pngName + "');"
+                + "background-size:" + (COLUMNS * 100) + "% " + (rows * 100) + "%;"
+                + "background-repeat:no-repeat;";
+        String stylesheet = ".card-sprite{" + sheetRule + "}\n"
+                + positions
+                // Card backs drawn purely in CSS
+                + ".cpu-card-back,.flying-card .card-back{" + sheetRule
+                + "background-position:" + percent((i - 1) % COLUMNS, COLUMNS) + ' '
+                + percent((i - 1) / COLUMNS, rows) + "}\n";
+        this.css = stylesheet.getBytes(StandardCharsets.UTF_8);
+        this.cssGzip = gzip(css);
+        this.cssName = "cards-" + hash(css) + ".css";
+
+        System.out.println("CardAtlas: " + sprites.size() + " cards in " + pngName + " (" + png.length / 1024
+                + " KB) built in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    // Sprite class -> source file, in sheet order. The back must be last.
+    private static Map<String, String> spriteFiles() {
+        Map<String, String> files = new LinkedHashMap<>();
+        for (Card.Suit suit : Card.Suit.values()) {
+            if (suit == Card.Suit.JOKER)
+                continue;
+            for (Card.Rank rank : Card.Rank.values()) {
+                if (rank == Card.Rank.JOKER)
+                    continue;
+                Card c = new Card(suit, rank);
+                files.put(c.getCssClass(), c.getImagePath());
+            }
+        }
+        Card joker = new Card(Card.Suit.JOKER, Card.Rank.JOKER);
+        files.put(joker.getCssClass(), joker.getImagePath());
+        files.put(BACK, "/images/cards/back.png");
+        return files;
+    }
+
+    /** URL of the stylesheet that defines the sprite classes. */
+    public String getCssPath() {
+        return URL_PREFIX + cssName;
+    }
+
+    public String getPngName() {
+        return pngName;
+    }
+
+    public String getCssName() {
+        return cssName;
+    }
+
+    public byte[] getPng() {
+        return png;
+    }
+
+    public byte[] getCss() {
+        return css;
+    }
+
+    public byte[] getCssGzip() {
+        return cssGzip;
+    }
+
+    private static BufferedImage load(String imagePath) {
+        String file = imagePath.substring(imagePath.lastIndexOf('/') + 1);
+        try (InputStream in = new ClassPathResource(IMAGE_DIR + file).getInputStream()) {
+            return ImageIO.read(in);
+        } catch (IOException e) {
+            System.err.println("CardAtlas: Missing card image " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String percent(int index, int count) {
+        if (count <= 1)
+            return "0%";
+        return (index * 100.0 / (count - 1)) + "%";
+    }
+
+    private static byte[] encode(BufferedImage image) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(image, "png", out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            return HexFormat.of().formatHex(digest, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
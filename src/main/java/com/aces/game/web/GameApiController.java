@@ -0,0 +1,141 @@
+package com.aces.game.web;
+
+import com.aces.game.domain.Card;
+import com.aces.game.domain.GameState;
+import com.aces.game.service.ActionCodes;
+import com.aces.game.service.CpuStep;
+import com.aces.game.service.GameAction;
+import com.aces.game.service.GameService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON counterpart of the /game form endpoints. Every action answers with
+ * the new state (see {@link GameView}), so the page can update in place
+ * instead of following a redirect and re-rendering the whole template.
+ */
+@RestController
+@RequestMapping("/api/game")
+public class GameApiController {
+
+    private final GameService gameService;
+
+    public GameApiController(GameService gameService) {
+        this.gameService = gameService;
+    }
+
+    /**
+     * Current state. With "since", answers 304 while the version is unchanged.
+     */
+    @GetMapping("/state")
+    public ResponseEntity<Map<String, Object>> state(@RequestParam(required = false) Long since) {
+        return gameService.withGame(game -> {
+            if (game == null || game.getPhase() == GameState.Phase.MENU) {
+                return ResponseEntity.notFound().build();
+            }
+            if (since != null && since == game.getStateVersion()) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+            return ResponseEntity.ok(GameView.of(game));
+        });
+    }
+
+    /**
+     * Moves the player to move can make right now, as action codes and as
+     * the matching batch actions.
+     */
+    @GetMapping("/legal")
+    public ResponseEntity<Map<String, Object>> legal() {
+        if (!isPlaying())
+            return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(gameService.withGame(game -> {
+            int[] codes = new int[ActionCodes.MAX_ACTIONS];
+            int count = Math.min(gameService.legalActions(codes), codes.length);
+            List<GameAction> actions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                actions.add(ActionCodes.toGameAction(codes[i], game));
+            }
+            Map<String, Object> view = new LinkedHashMap<>();
+            view.put("playerId", game.getCurrentPlayer().getId());
+            view.put("version", game.getStateVersion());
+            view.put("codes", Arrays.copyOf(codes, count));
+            view.put("actions", actions);
+            return view;
+        }));
+    }
+
+    @PostMapping("/draw")
+    public ResponseEntity<Map<String, Object>> draw(@RequestParam String playerId) {
+        if (!isPlaying())
+            return ResponseEntity.notFound().build();
+        Card drawn = gameService.drawCardAndReturn(playerId);
+        Map<String, Object> view = gameService.withGame(GameView::of);
+        if (drawn != null) {
+            view.put("drawn", drawn.getCssClass());
+        }
+        return ResponseEntity.ok(view);
+    }
+
+    @PostMapping("/play")
+    public ResponseEntity<Map<String, Object>> play(@RequestParam String playerId, @RequestParam int cardIndex) {
+        if (!isPlaying())
+            return ResponseEntity.notFound().build();
+        gameService.playToStack(playerId, cardIndex);
+        return ResponseEntity.ok(gameService.withGame(GameView::of));
+    }
+
+    @PostMapping("/discard")
+    public ResponseEntity<Map<String, Object>> discard(@RequestParam String playerId, @RequestParam int cardIndex) {
+        if (!isPlaying())
+            return ResponseEntity.notFound().build();
+        gameService.discardAndEffect(playerId, cardIndex);
+        return ResponseEntity.ok(gameService.withGame(GameView::of));
+    }
+
+    @PostMapping("/effect")
+    public ResponseEntity<Map<String, Object>> effect(@RequestParam String playerId, @RequestParam String actionData) {
+        if (!isPlaying())
+            return ResponseEntity.notFound().build();
+        gameService.handleInteraction(playerId, actionData);
+        return ResponseEntity.ok(gameService.withGame(GameView::of));
+    }
+
+    @PostMapping("/skip")
+    public ResponseEntity<Map<String, Object>> skip(@RequestParam String playerId) {
+        if (!isPlaying())
+            return ResponseEntity.notFound().build();
+        gameService.skipTurn(playerId);
+        return ResponseEntity.ok(gameService.withGame(GameView::of));
+    }
+
+    /**
+     * Runs all CPU turns until a human is to move and returns their steps
+     * ("timeline", each with an "at" offset in ms for the client's animation)
+     * along with the resulting state.
+     */
+    @PostMapping("/cpu-turns")
+    public ResponseEntity<Map<String, Object>> cpuTurns() {
+        if (!isPlaying())
+            return ResponseEntity.notFound().build();
+        List<CpuStep> timeline = gameService.runCpuTurns();
+        Map<String, Object> view = gameService.withGame(GameView::of);
+        view.put("timeline", timeline);
+        return ResponseEntity.ok(view);
+    }
+
+    private boolean isPlaying() {
+        GameState game = gameService.getGame();
+        return game != null && game.getPhase() == GameState.Phase.PLAYING;
+    }
+}
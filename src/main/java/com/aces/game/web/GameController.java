@@ -1,5 +1,7 @@
 package com.aces.game.web;
 
+import com.aces.game.service.ActionBatchResult;
+import com.aces.game.service.GameAction;
 import com.aces.game.service.GameService;
 import com.aces.game.domain.Card;
 import com.aces.game.domain.Player;
@@ -8,9 +10,11 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Controller
@@ -48,8 +52,7 @@ public class GameController {
         }
 
         model.addAttribute("state", game); // for easier detailed rendering
-        Player human = gameService.getGame().getPlayers().stream()
-                .filter(p -> p.isPc()).findFirst().orElse(null);
+        Player human = game.findHuman();
         model.addAttribute("human", human);
         if (human == null) {
             // Should not happen if game started correctly
@@ -58,10 +61,7 @@ public class GameController {
 
         // Add target player for 8 card picking
         if (game.getEightTargetPlayerId() != null) {
-            Player eightTarget = game.getPlayers().stream()
-                    .filter(p -> p.getId().equals(game.getEightTargetPlayerId()))
-                    .findFirst().orElse(null);
-            model.addAttribute("eightTarget", eightTarget);
+            model.addAttribute("eightTarget", game.findPlayer(game.getEightTargetPlayerId()));
         }
 
         return "game";
@@ -112,12 +112,39 @@ public class GameController {
         return "redirect:/game";
     }
 
+    // Form fallback: plays all pending CPU turns at once
     @PostMapping("/game/cpu-step")
     public String cpuStep() {
-        gameService.processCpuStep();
+        gameService.runCpuTurns();
         return "redirect:/game";
     }
 
+    /**
+     * Body of POST /game/actions: { "playerId": "p1", "actions": [ { "type":
+     * "draw" }, { "type": "play", "cardIndex": 2 }, { "type": "skip" } ] }
+     */
+    public record ActionBatch(String playerId, List<GameAction> actions) {
+    }
+
+    /**
+     * Applies several actions in one request, all or none of them, and
+     * returns the resulting state once, with "applied" and "rejectedIndex"
+     * (see ActionBatchResult).
+     */
+    @PostMapping("/game/actions")
+    @ResponseBody
+    public Map<String, Object> actions(@RequestBody ActionBatch batch) {
+        List<GameAction> actions = (batch.actions() != null) ? batch.actions() : List.of();
+        ActionBatchResult result = gameService.applyActions(batch.playerId(), actions);
+
+        Map<String, Object> response = gameService.withGame(
+                game -> game != null ? GameView.of(game) : new HashMap<String, Object>());
+        response.put("applied", result.applied());
+        response.put("rejectedIndex", result.rejectedIndex());
+        response.put("result", result.message());
+        return response;
+    }
+
     @PostMapping("/game/skip")
     public String skip(@RequestParam String playerId) {
         gameService.skipTurn(playerId);
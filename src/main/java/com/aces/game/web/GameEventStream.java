@@ -0,0 +1,223 @@
+package com.aces.game.web;
+
+import com.aces.game.ai.BrainRegistry;
+import com.aces.game.ai.DecisionSnapshot;
+import com.aces.game.domain.GameState;
+import com.aces.game.domain.Player;
+import com.aces.game.service.GameEvent;
+import com.aces.game.service.GameEventListener;
+import com.aces.game.service.GameService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Server-Sent Events stream for the game page.
+ *
+ * Events:
+ * state - changed fields since the previous version ("baseVersion"); the
+ * first event on a connection is a full summary ("full": true)
+ * cpu-step - a CPU finished a step (a CpuStep: player, action, message, version)
+ * ai - a CPU's brain decided (same fields as /ai/state)
+ *
+ * Events are built on the thread that changed the game, under the game lock,
+ * and queued per connection; they are written by {@link SseSenders}, in
+ * order. A connection that falls MAX_PENDING events behind or stalls a send
+ * is dropped; the page reconnects and starts again from a full summary.
+ */
+@RestController
+public class GameEventStream implements GameEventListener {
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    private static final long SEND_TIMEOUT_MS = 5000;
+    private static final int MAX_PENDING = 256;
+
+    private final GameService gameService;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final SseSenders senders = new SseSenders("game-events-send", SEND_TIMEOUT_MS);
+
+    // Summary sent with the last state event, to compute the next delta
+    private Map<String, Object> lastSummary = new LinkedHashMap<>();
+    private long lastVersion = -1;
+
+    // One connection: events waiting to be written, oldest first
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        final ArrayDeque<SseEmitter.SseEventBuilder> pending = new ArrayDeque<>();
+        boolean draining;
+        boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public GameEventStream(GameService gameService) {
+        this.gameService = gameService;
+        gameService.addListener(this);
+    }
+
+    @jakarta.annotation.PreDestroy
+    public void shutdown() {
+        gameService.removeListener(this);
+        senders.shutdown();
+    }
+
+    @GetMapping(path = "/game/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber s = new Subscriber(emitter);
+        emitter.onCompletion(() -> remove(s));
+        emitter.onTimeout(() -> remove(s));
+        emitter.onError(e -> remove(s));
+
+        // Summary and registration under the lock, so no event falls in between
+        gameService.withGame(game -> {
+            if (game != null) {
+                Map<String, Object> summary = GameView.summarize(game);
+                rebase(summary, game.getStateVersion());
+                Map<String, Object> full = new LinkedHashMap<>(summary);
+                full.put("version", game.getStateVersion());
+                full.put("full", true);
+                offer(s, event(GameEvent.STATE, full));
+            }
+            subscribers.add(s);
+            return null;
+        });
+        return emitter;
+    }
+
+    @Override
+    public void onGameEvent(GameEvent event) {
+        if (subscribers.isEmpty())
+            return;
+
+        switch (event.type()) {
+            case GameEvent.STATE:
+                broadcast(GameEvent.STATE, stateDelta(event.game()));
+                break;
+            case GameEvent.CPU_STEP:
+                broadcast(GameEvent.CPU_STEP, event.detail());
+                break;
+            case GameEvent.AI: {
+                DecisionSnapshot d = (DecisionSnapshot) event.detail();
+                Map<String, Object> ai = new LinkedHashMap<>();
+                ai.put("playerId", d.playerId());
+                ai.put("inputs", d.inputs());
+                ai.put("strategy", d.strategy());
+                ai.put("outputs", d.outputs());
+                ai.put("action", d.action());
+                ai.put("decidedAt", d.timestamp());
+                Player p = event.game().findPlayer(d.playerId());
+                if (p != null)
+                    ai.put("brainVersion", String.valueOf(BrainRegistry.get(p.getBrainVersion()).getGeneration()));
+                broadcast(GameEvent.AI, ai);
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    private synchronized Map<String, Object> stateDelta(GameState game) {
+        Map<String, Object> summary = GameView.summarize(game);
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("version", game.getStateVersion());
+        delta.put("baseVersion", lastVersion);
+        for (Map.Entry<String, Object> e : summary.entrySet()) {
+            if (!Objects.equals(e.getValue(), lastSummary.get(e.getKey()))) {
+                delta.put(e.getKey(), e.getValue());
+            }
+        }
+        lastSummary = summary;
+        lastVersion = game.getStateVersion();
+        return delta;
+    }
+
+    // Later deltas build on the summary a new connection starts from (the
+    // last one may be stale: no deltas are made while nobody listens)
+    private synchronized void rebase(Map<String, Object> summary, long version) {
+        lastSummary = summary;
+        lastVersion = version;
+    }
+
+    // Called under the game lock; only queues
+    private void broadcast(String name, Object data) {
+        SseEmitter.SseEventBuilder event = event(name, data);
+        for (Subscriber s : subscribers) {
+            offer(s, event);
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder event(String name, Object data) {
+        return SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+    }
+
+    private void offer(Subscriber s, SseEmitter.SseEventBuilder event) {
+        synchronized (s) {
+            if (s.closed)
+                return;
+            if (s.pending.size() < MAX_PENDING) {
+                s.pending.add(event);
+                if (!s.draining) {
+                    s.draining = senders.execute(() -> drain(s));
+                }
+                return;
+            }
+        }
+        // Too far behind. A sender still busy with it completes the emitter
+        // once its send returns; otherwise nothing is writing to it now
+        boolean sending;
+        synchronized (s) {
+            sending = s.draining;
+        }
+        remove(s);
+        if (!sending)
+            complete(s.emitter);
+    }
+
+    private void drain(Subscriber s) {
+        while (true) {
+            SseEmitter.SseEventBuilder event;
+            boolean closed;
+            synchronized (s) {
+                closed = s.closed;
+                event = closed ? null : s.pending.poll();
+                if (event == null)
+                    s.draining = false;
+            }
+            if (closed)
+                complete(s.emitter);
+            if (event == null)
+                return;
+            if (!senders.send(s.emitter, event)) {
+                remove(s);
+                return;
+            }
+        }
+    }
+
+    private static void complete(SseEmitter emitter) {
+        try {
+            emitter.complete();
+        } catch (IllegalStateException ignored) {
+            // Already completed
+        }
+    }
+
+    private void remove(Subscriber s) {
+        synchronized (s) {
+            s.closed = true;
+            s.pending.clear();
+        }
+        subscribers.remove(s);
+    }
+}
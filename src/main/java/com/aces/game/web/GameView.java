@@ -0,0 +1,97 @@
+package com.aces.game.web;
+
+import com.aces.game.domain.Card;
+import com.aces.game.domain.GameState;
+import com.aces.game.domain.Player;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON-friendly view of what the game page shows. Used by the state API and
+ * the event stream, so both describe the table the same way.
+ */
+public class GameView {
+
+    // The page only draws the top few cards of each stack
+    static final int VISIBLE_STACK_CARDS = 5;
+
+    private GameView() {
+    }
+
+    /**
+     * Full state for the client, tagged with its version.
+     */
+    public static Map<String, Object> of(GameState game) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("version", game.getStateVersion());
+        view.putAll(summarize(game));
+        return view;
+    }
+
+    /**
+     * Flat summary of the table as the human player sees it. Each player is
+     * its own entry ("player:<id>") so a delta only carries the seats that
+     * changed.
+     */
+    static Map<String, Object> summarize(GameState game) {
+        return summarize(game, true);
+    }
+
+    /**
+     * Same as {@link #summarize(GameState)} without anyone's hand, for
+     * spectators.
+     */
+    static Map<String, Object> spectatorSummary(GameState game) {
+        return summarize(game, false);
+    }
+
+    private static Map<String, Object> summarize(GameState game, boolean showHumanHand) {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("phase", game.getPhase().name());
+        s.put("message", game.getGameMessage());
+        s.put("lastAction", game.getLastAction());
+        s.put("effectState", game.getEffectState().name());
+        s.put("modalActive", game.isModalActive());
+        s.put("drawPile", game.getDrawPile().size());
+        s.put("bottomCard", sprite(game.getBottomFacingCard()));
+        s.put("gameOver", game.isGameOver());
+        s.put("winnerId", game.getWinner() != null ? game.getWinner().getId() : null);
+        if (!game.getPlayers().isEmpty()) {
+            s.put("currentPlayerId", game.getCurrentPlayer().getId());
+            s.put("hasDrawn", game.isHasDrawn());
+            s.put("hasPlayedToStack", game.isHasPlayedToStack());
+            s.put("cpuTurnPending", game.isCpuTurnPending());
+        }
+        List<String> seats = new ArrayList<>();
+        for (Player p : game.getPlayers()) {
+            seats.add(p.getId());
+            s.put("player:" + p.getId(), seat(p, showHumanHand));
+        }
+        s.put("seats", seats);
+        return s;
+    }
+
+    private static Map<String, Object> seat(Player p, boolean showHumanHand) {
+        Map<String, Object> seat = new LinkedHashMap<>();
+        seat.put("name", p.getName());
+        seat.put("human", p.isPc());
+        seat.put("handSize", p.getHand().size());
+        if (p.isPc() && showHumanHand) {
+            seat.put("hand", p.getHand().stream().map(GameView::sprite).toList());
+        }
+        List<Card> stack = p.getStack();
+        int from = Math.max(0, stack.size() - VISIBLE_STACK_CARDS);
+        seat.put("stackSize", stack.size());
+        seat.put("stack", stack.subList(from, stack.size()).stream().map(GameView::sprite).toList());
+        seat.put("lastDiscard", sprite(p.getLastDiscard()));
+        return seat;
+    }
+
+    // Cards are sent as their sprite class in the CardAtlas
+    private static String sprite(Card c) {
+        return c != null ? c.getCssClass() : null;
+    }
+}
@@ -0,0 +1,272 @@
+package com.aces.game.web;
+
+import com.aces.game.ai.DecisionSnapshot;
+import com.aces.game.domain.GameState;
+import com.aces.game.service.GameEvent;
+import com.aces.game.service.GameEventListener;
+import com.aces.game.service.GameService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Read-only SSE feed of the table for spectators (GET /game/spectate). Hands
+ * are never included.
+ *
+ * Cost per change does not grow with the audience: each state version is
+ * summarized and serialized once, and every spectator is sent the same
+ * string. Sends happen on {@link SseSenders}, never on the thread that
+ * changed the game. Each spectator holds at most one pending state frame
+ * (latest wins): a slow client skips versions, and when it has missed one it
+ * is sent the full state of the newest version instead of a delta it could
+ * not apply. A spectator whose send stalls past the send timeout is dropped.
+ *
+ * Events: state ({ version, baseVersion, ...changed fields } or
+ * { version, full: true, ... }) and ai (latest decision per CPU, same
+ * fields as /ai/state).
+ */
+@RestController
+public class SpectatorStream implements GameEventListener {
+
+    private static final long EMITTER_TIMEOUT_MS = 60 * 60 * 1000L;
+    private static final long SEND_TIMEOUT_MS = 5000;
+
+    private final GameService gameService;
+    private final ObjectMapper objectMapper;
+    private final List<Spectator> spectators = new CopyOnWriteArrayList<>();
+    private final SseSenders senders = new SseSenders("spectator-send", SEND_TIMEOUT_MS);
+
+    // Last summary, to compute the next delta; only touched under the game lock
+    private Map<String, Object> lastSummary = new LinkedHashMap<>();
+    private long lastVersion = -1;
+
+    /**
+     * One state version, serialized once for every spectator. The full form
+     * is only built if some spectator fell behind.
+     */
+    private final class Frame {
+        final long version;
+        final long baseVersion;
+        final String delta;
+        private final Map<String, Object> summary;
+        private String full;
+
+        Frame(long version, long baseVersion, String delta, Map<String, Object> summary) {
+            this.version = version;
+            this.baseVersion = baseVersion;
+            this.delta = delta;
+            this.summary = summary;
+        }
+
+        synchronized String full() {
+            if (full == null) {
+                Map<String, Object> f = new LinkedHashMap<>(summary);
+                f.put("version", version);
+                f.put("full", true);
+                full = toJson(f);
+            }
+            return full;
+        }
+    }
+
+    private static final class Spectator {
+        final SseEmitter emitter;
+        long sentVersion = -1;
+        Frame pendingState;
+        final Map<String, String> pendingAi = new LinkedHashMap<>();
+        boolean draining;
+        volatile boolean closed;
+
+        Spectator(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    public SpectatorStream(GameService gameService, ObjectMapper objectMapper) {
+        this.gameService = gameService;
+        this.objectMapper = objectMapper;
+        gameService.addListener(this);
+    }
+
+    @jakarta.annotation.PreDestroy
+    public void shutdown() {
+        gameService.removeListener(this);
+        senders.shutdown();
+    }
+
+    @GetMapping(path = "/game/spectate", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter spectate() {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Spectator s = new Spectator(emitter);
+        emitter.onCompletion(() -> remove(s));
+        emitter.onTimeout(() -> remove(s));
+        emitter.onError(e -> remove(s));
+
+        // Start from the full current state; later frames follow from there
+        Frame current = gameService.withGame(game -> {
+            spectators.add(s);
+            if (game == null)
+                return null;
+            // Also the base for the next delta, which may have been skipped
+            // while nobody was watching
+            Map<String, Object> summary = GameView.spectatorSummary(game);
+            lastSummary = summary;
+            lastVersion = game.getStateVersion();
+            return new Frame(game.getStateVersion(), -1, null, summary);
+        });
+        if (current != null) {
+            offer(s, current);
+        }
+        return emitter;
+    }
+
+    /** Number of connected spectators. */
+    public int size() {
+        return spectators.size();
+    }
+
+    @Override
+    public void onGameEvent(GameEvent event) {
+        switch (event.type()) {
+            case GameEvent.STATE: {
+                // With nobody watching, skip the work; the next spectator
+                // starts from a full frame
+                if (spectators.isEmpty())
+                    break;
+                Frame frame = nextFrame(event.game());
+                fanOut(() -> spectators.forEach(s -> offer(s, frame)));
+                break;
+            }
+            case GameEvent.AI: {
+                if (spectators.isEmpty())
+                    break;
+                DecisionSnapshot d = (DecisionSnapshot) event.detail();
+                Map<String, Object> ai = new LinkedHashMap<>();
+                ai.put("playerId", d.playerId());
+                ai.put("inputs", d.inputs());
+                ai.put("strategy", d.strategy());
+                ai.put("outputs", d.outputs());
+                ai.put("action", d.action());
+                ai.put("decidedAt", d.timestamp());
+                String json = toJson(ai);
+                fanOut(() -> spectators.forEach(s -> offerAi(s, d.playerId(), json)));
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    // Queues for every spectator on a sender; if all are busy, right here
+    // (offers only touch queues)
+    private void fanOut(Runnable offers) {
+        if (!senders.execute(offers))
+            offers.run();
+    }
+
+    // Called under the game lock: one summary and one serialization per version
+    private Frame nextFrame(GameState game) {
+        Map<String, Object> summary = GameView.spectatorSummary(game);
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("version", game.getStateVersion());
+        delta.put("baseVersion", lastVersion);
+        for (Map.Entry<String, Object> e : summary.entrySet()) {
+            if (!Objects.equals(e.getValue(), lastSummary.get(e.getKey()))) {
+                delta.put(e.getKey(), e.getValue());
+            }
+        }
+        Frame frame = new Frame(game.getStateVersion(), lastVersion, toJson(delta), summary);
+        lastSummary = summary;
+        lastVersion = game.getStateVersion();
+        return frame;
+    }
+
+    private void offer(Spectator s, Frame frame) {
+        synchronized (s) {
+            if (s.closed)
+                return;
+            if (s.pendingState == null || frame.version > s.pendingState.version) {
+                s.pendingState = frame;
+            }
+            schedule(s);
+        }
+    }
+
+    private void offerAi(Spectator s, String playerId, String json) {
+        synchronized (s) {
+            if (s.closed)
+                return;
+            s.pendingAi.put(playerId, json);
+            schedule(s);
+        }
+    }
+
+    // Caller holds the spectator's monitor. If every sender is busy, the
+    // pending frame waits for the next offer
+    private void schedule(Spectator s) {
+        if (!s.draining) {
+            s.draining = senders.execute(() -> drain(s));
+        }
+    }
+
+    private void drain(Spectator s) {
+        while (true) {
+            String name;
+            String data;
+            synchronized (s) {
+                if (s.closed) {
+                    s.draining = false;
+                    return;
+                }
+                if (s.pendingState != null) {
+                    Frame f = s.pendingState;
+                    s.pendingState = null;
+                    if (f.version <= s.sentVersion)
+                        continue;
+                    // A delta only applies on top of the version it was made from
+                    data = (f.delta != null && f.baseVersion == s.sentVersion) ? f.delta : f.full();
+                    s.sentVersion = f.version;
+                    name = GameEvent.STATE;
+                } else if (!s.pendingAi.isEmpty()) {
+                    String key = s.pendingAi.keySet().iterator().next();
+                    data = s.pendingAi.remove(key);
+                    name = GameEvent.AI;
+                } else {
+                    s.draining = false;
+                    return;
+                }
+            }
+            if (!senders.send(s.emitter, SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON))) {
+                remove(s);
+                return;
+            }
+        }
+    }
+
+    private void remove(Spectator s) {
+        synchronized (s) {
+            s.closed = true;
+            s.pendingState = null;
+            s.pendingAi.clear();
+        }
+        spectators.remove(s);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
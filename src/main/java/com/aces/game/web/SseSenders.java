@@ -0,0 +1,123 @@
+package com.aces.game.web;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads that write SSE events, so no send ever runs on the thread that
+ * changed the game (which holds the game lock).
+ *
+ * emitter.send blocks while the client's TCP window is full, so one stalled
+ * client could hold a sender indefinitely. Two things keep that from
+ * reaching the other clients: the pool grows past its core size while
+ * senders are busy, and a send that takes longer than the send timeout is
+ * interrupted and reported as failed, so the stream drops that client.
+ */
+final class SseSenders {
+
+    private static final int CORE_THREADS = 4;
+    private static final int MAX_THREADS = 64;
+
+    private final ThreadPoolExecutor pool;
+    private final ScheduledExecutorService watchdog;
+    private final long sendTimeoutNs;
+    // Sends in progress, by the thread making them
+    private final Map<Thread, Send> inFlight = new ConcurrentHashMap<>();
+
+    // Guarded by its own monitor, so an interrupt only ever lands before done
+    private static final class Send {
+        final long startedAt = System.nanoTime();
+        boolean done;
+        boolean timedOut;
+    }
+
+    SseSenders(String name, long sendTimeoutMs) {
+        this.sendTimeoutNs = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        AtomicInteger count = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(CORE_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), r -> daemon(r, name + "-" + count.incrementAndGet()));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, name + "-watchdog"));
+        long period = Math.max(1, sendTimeoutMs / 2);
+        watchdog.scheduleAtFixedRate(this::interruptStalled, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the task on a sender. Returns false if every sender is busy; the
+     * caller keeps its events and tries again with the next one.
+     */
+    boolean execute(Runnable task) {
+        try {
+            pool.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends one event from a sender thread. Returns false if the client is
+     * gone or did not take the event within the send timeout; the emitter
+     * is then completed with the error.
+     */
+    boolean send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        Send send = new Send();
+        inFlight.put(Thread.currentThread(), send);
+        Exception failure = null;
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            failure = e;
+        } finally {
+            inFlight.remove(Thread.currentThread());
+            synchronized (send) {
+                send.done = true;
+            }
+            Thread.interrupted(); // Clear it for the sender's next task
+        }
+        if (failure == null && send.timedOut)
+            failure = new IOException("SSE client stalled");
+        if (failure == null)
+            return true;
+        try {
+            emitter.completeWithError(failure);
+        } catch (IllegalStateException ignored) {
+            // Already completed
+        }
+        return false;
+    }
+
+    void shutdown() {
+        watchdog.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    private void interruptStalled() {
+        long now = System.nanoTime();
+        inFlight.forEach((thread, send) -> {
+            if (now - send.startedAt <= sendTimeoutNs)
+                return;
+            synchronized (send) {
+                if (!send.done && !send.timedOut) {
+                    send.timedOut = true;
+                    thread.interrupt();
+                }
+            }
+        });
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,95 @@
+package com.aces.game.ai;
+
+import com.aces.game.domain.Card;
+import com.aces.game.domain.GameState;
+import com.aces.game.domain.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FeatureTableTest {
+
+    private static final int CARD_IDS = Card.MAX_DECKS * Card.DECK_SIZE;
+
+    @Test
+    void matchesMapperForEveryTableSize() {
+        Random random = new Random(42);
+        for (int players = 1; players <= 12; players++) {
+            GameState game = randomGame(players, random);
+            FeatureTable table = new FeatureTable();
+            table.reset(game);
+            assertMatchesMapper(game, table);
+        }
+    }
+
+    @Test
+    void matchesMapperAfterSeatAndPileChanges() {
+        Random random = new Random(7);
+        for (int players = 2; players <= 10; players++) {
+            GameState game = randomGame(players, random);
+            FeatureTable table = new FeatureTable();
+            table.reset(game);
+            for (int step = 0; step < 20; step++) {
+                Player p = game.getPlayers().get(random.nextInt(players));
+                List<Card> pile = switch (random.nextInt(3)) {
+                    case 0 -> p.getHand();
+                    case 1 -> p.getStack();
+                    default -> p.getDiscardPile();
+                };
+                if (!pile.isEmpty() && random.nextBoolean()) {
+                    pile.remove(pile.size() - 1);
+                } else {
+                    pile.add(randomCard(random));
+                }
+                table.seatChanged(p);
+                game.getDrawPile().push(randomCard(random));
+                game.setBottomFacingCard(randomCard(random));
+                table.pilesChanged(game);
+                assertMatchesMapper(game, table);
+            }
+        }
+    }
+
+    private static void assertMatchesMapper(GameState game, FeatureTable table) {
+        List<Player> players = game.getPlayers();
+        for (int seat = 0; seat < players.size(); seat++) {
+            double[] expected = new double[FeatureTable.INPUT_SIZE];
+            AiInputMapper.extractInputs(game, players.get(seat), expected, 0);
+            double[] actual = new double[FeatureTable.INPUT_SIZE + 3];
+            table.extract(seat, actual, 3);
+            double[] row = new double[FeatureTable.INPUT_SIZE];
+            System.arraycopy(actual, 3, row, 0, row.length);
+            assertArrayEquals(expected, row, players.size() + " players, seat " + seat);
+        }
+    }
+
+    private static GameState randomGame(int players, Random random) {
+        GameState game = new GameState();
+        game.setDeckCount(1 + random.nextInt(Card.MAX_DECKS));
+        for (int i = 0; i < players; i++) {
+            Player p = new Player("p" + i, "P" + i, i > 0);
+            addCards(p.getHand(), random.nextInt(6), random);
+            addCards(p.getStack(), random.nextInt(6), random);
+            addCards(p.getDiscardPile(), random.nextInt(4), random);
+            game.getPlayers().add(p);
+        }
+        for (int i = random.nextInt(30); i > 0; i--) {
+            game.getDrawPile().push(randomCard(random));
+        }
+        game.setBottomFacingCard(random.nextBoolean() ? randomCard(random) : null);
+        return game;
+    }
+
+    private static void addCards(List<Card> cards, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            cards.add(randomCard(random));
+        }
+    }
+
+    private static Card randomCard(Random random) {
+        return Card.ofId(random.nextInt(CARD_IDS));
+    }
+}
@@ -0,0 +1,129 @@
+package com.aces.game.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DrawPileTest {
+
+    private static final int CARDS = 10;
+    private static final int TRIALS = 60_000;
+
+    @Test
+    void lazyShuffleDrawsEveryOrderUniformly() {
+        int[][] counts = new int[CARDS][CARDS]; // card id, position drawn
+        DrawPile pile = new DrawPile();
+        for (int t = 0; t < TRIALS; t++) {
+            fill(pile);
+            pile.shuffleLazily();
+            Card bottom = pile.get(0);
+            for (int position = 0; position < CARDS; position++) {
+                Card c = pile.pop();
+                counts[c.getId()][position]++;
+                if (position == CARDS - 1)
+                    assertSame(bottom, c, "the bottom card is drawn last");
+            }
+        }
+        double expected = (double) TRIALS / CARDS;
+        for (int id = 0; id < CARDS; id++) {
+            for (int position = 0; position < CARDS; position++) {
+                double deviation = Math.abs(counts[id][position] - expected) / expected;
+                assertTrue(deviation < 0.1,
+                        "card " + id + " drawn " + position + "th " + counts[id][position] + " times");
+            }
+        }
+    }
+
+    @Test
+    void settlingInTheMiddleKeepsUniformOrder() {
+        int[][] counts = new int[CARDS][CARDS];
+        DrawPile pile = new DrawPile();
+        for (int t = 0; t < TRIALS; t++) {
+            fill(pile);
+            pile.shuffleLazily();
+            pile.pop();
+            pile.pop();
+            pile.get(3); // Inside the unsettled range
+            for (int i = 0; i < pile.size(); i++) {
+                counts[pile.get(i).getId()][i]++;
+            }
+        }
+        // The pile is still a uniform permutation minus its top two cards,
+        // so every remaining position holds each card one time in ten
+        double expected = (double) TRIALS / CARDS;
+        for (int id = 0; id < CARDS; id++) {
+            for (int position = 0; position < CARDS - 2; position++) {
+                double deviation = Math.abs(counts[id][position] - expected) / expected;
+                assertTrue(deviation < 0.1,
+                        "card " + id + " at position " + position + " " + counts[id][position] + " times");
+            }
+        }
+    }
+
+    @Test
+    void cardsPushedAfterShuffleComeOffFirstInOrder() {
+        DrawPile pile = new DrawPile();
+        fill(pile);
+        pile.shuffleLazily();
+        Card first = Card.ofId(CARDS);
+        Card second = Card.ofId(CARDS + 1);
+        pile.push(first);
+        pile.push(second);
+        assertSame(second, pile.pop());
+        assertSame(first, pile.pop());
+        assertEquals(CARDS, drawAll(pile).size());
+    }
+
+    @Test
+    void putBottomStaysUnderTheShuffledCards() {
+        DrawPile pile = new DrawPile();
+        fill(pile);
+        pile.shuffleLazily();
+        Card under = Card.ofId(CARDS);
+        pile.putBottom(under);
+        assertSame(under, pile.get(0));
+        List<Card> drawn = drawAll(pile);
+        assertSame(under, drawn.get(drawn.size() - 1));
+        assertEquals(CARDS + 1, new HashSet<>(drawn).size());
+    }
+
+    @Test
+    void copyKeepsTheUnsettledRange() {
+        DrawPile pile = new DrawPile();
+        fill(pile);
+        pile.shuffleLazily();
+        pile.pop();
+        DrawPile copy = new DrawPile();
+        copy.push(Card.ofId(CARDS)); // Replaced by the copy
+        copy.copyFrom(pile);
+        assertEquals(pile, copy);
+        assertEquals(pile.unsettledFrom(), copy.unsettledFrom());
+        assertEquals(pile.unsettledTo(), copy.unsettledTo());
+
+        Set<Card> rest = new HashSet<>(drawAll(copy));
+        assertEquals(new HashSet<>(drawAll(pile)), rest);
+        assertEquals(CARDS - 1, rest.size());
+    }
+
+    private static void fill(DrawPile pile) {
+        pile.clear();
+        for (int id = 0; id < CARDS; id++) {
+            pile.push(Card.ofId(id));
+        }
+    }
+
+    private static List<Card> drawAll(DrawPile pile) {
+        List<Card> drawn = new ArrayList<>();
+        while (!pile.isEmpty()) {
+            drawn.add(pile.pop());
+        }
+        return drawn;
+    }
+}
@@ -0,0 +1,148 @@
+package com.aces.game.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GameStateCodecTest {
+
+    @Test
+    void roundTripReencodesToTheSameBytes() {
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            GameState game = randomGame(random);
+            byte[] data = GameStateCodec.encode(game);
+            GameState decoded = GameStateCodec.decode(data);
+            assertArrayEquals(data, GameStateCodec.encode(decoded), "game " + i);
+        }
+    }
+
+    @Test
+    void roundTripKeepsTheFields() {
+        GameState game = randomGame(new Random(3));
+        game.setEffectState(GameState.EffectState.SEVEN_PASS_CARD);
+        game.setEffectSourceRank(Card.Rank.SEVEN);
+        game.setSevenTargetPlayerId(game.getPlayers().get(2).getId());
+        game.setEightTargetPlayerId(game.getPlayers().get(1).getId());
+        game.setWinner(game.getPlayers().get(1));
+        game.setPlayDirection(-1);
+        game.setGameMessage(Message.Code.SEVEN_PLACED, Card.ofId(5), game.getPlayers().get(2));
+        game.setLastAction(Message.Code.CPU_DREW, game.getPlayers().get(1));
+
+        GameState decoded = GameStateCodec.decode(GameStateCodec.encode(game));
+        assertEquals(game.getStateVersion(), decoded.getStateVersion());
+        assertEquals(game.getTurnCount(), decoded.getTurnCount());
+        assertEquals(game.getEffectState(), decoded.getEffectState());
+        assertEquals(Card.Rank.SEVEN, decoded.getEffectSourceRank());
+        assertEquals(game.getSevenTargetPlayerId(), decoded.getSevenTargetPlayerId());
+        assertEquals(game.getEightTargetPlayerId(), decoded.getEightTargetPlayerId());
+        assertSame(decoded.getPlayers().get(1), decoded.getWinner());
+        assertEquals(-1, decoded.getPlayDirection());
+        assertEquals(game.getGameMessage(), decoded.getGameMessage());
+        assertEquals(Message.Code.SEVEN_PLACED, decoded.gameMessage().getCode());
+        assertEquals(game.getLastAction(), decoded.getLastAction());
+        assertEquals(Message.Code.CPU_DREW, decoded.lastAction().getCode());
+        assertSame(game.getBottomFacingCard(), decoded.getBottomFacingCard());
+        for (int i = 0; i < game.getPlayers().size(); i++) {
+            Player p = game.getPlayers().get(i);
+            Player q = decoded.getPlayers().get(i);
+            assertEquals(p.getId(), q.getId());
+            assertEquals(p.getHand(), q.getHand());
+            assertEquals(p.getStack(), q.getStack());
+            assertEquals(p.getDiscardPile(), q.getDiscardPile());
+            assertEquals(p.getJokerStackValue(), q.getJokerStackValue());
+        }
+    }
+
+    @Test
+    void drawPileKeepsItsUnsettledRange() {
+        GameState game = new GameState();
+        DrawPile pile = game.getDrawPile();
+        for (int id = 0; id < 40; id++) {
+            pile.push(Card.ofId(id));
+        }
+        pile.shuffleLazily();
+        pile.pop();
+        pile.pop();
+        pile.push(Card.ofId(100)); // Above the range, e.g. a Queen put-back
+
+        GameState decoded = GameStateCodec.decode(GameStateCodec.encode(game));
+        DrawPile restored = decoded.getDrawPile();
+        assertEquals(1, restored.unsettledFrom());
+        assertEquals(38, restored.unsettledTo());
+        assertEquals(pile, restored);
+        assertSame(Card.ofId(100), restored.pop());
+        assertEquals(38, restored.size());
+    }
+
+    @Test
+    void truncatedDataIsRejected() {
+        byte[] data = GameStateCodec.encode(randomGame(new Random(5)));
+        for (int length = 0; length < data.length; length++) {
+            byte[] prefix = Arrays.copyOf(data, length);
+            assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(prefix),
+                    "prefix of " + length + " bytes");
+        }
+    }
+
+    @Test
+    void trailingBytesAndUnknownFormatAreRejected() {
+        byte[] data = GameStateCodec.encode(randomGame(new Random(9)));
+        byte[] longer = Arrays.copyOf(data, data.length + 1);
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(longer));
+        byte[] otherFormat = data.clone();
+        otherFormat[0] = 99;
+        assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(otherFormat));
+    }
+
+    private static GameState randomGame(Random random) {
+        GameState game = new GameState();
+        game.setStateVersion(random.nextInt(100_000));
+        game.setTurnCount(random.nextInt(500));
+        game.setPhase(GameState.Phase.PLAYING);
+        game.setDeckCount(1 + random.nextInt(Card.MAX_DECKS));
+        game.setInitialCpuCount(random.nextInt(6));
+        game.setHasDrawn(random.nextBoolean());
+        game.setSkipsRemaining(random.nextInt(3));
+        game.setGameMessage("Turn " + game.getTurnCount());
+        int players = 2 + random.nextInt(5);
+        for (int i = 0; i < players; i++) {
+            Player p = new Player(i == 0 ? "p1" : "cpu" + i, "Player " + i, i == 0);
+            addCards(p.getHand(), random.nextInt(8), random);
+            addCards(p.getStack(), random.nextInt(8), random);
+            addCards(p.getDiscardPile(), random.nextInt(4), random);
+            if (random.nextInt(4) == 0)
+                p.setJokerStackValue(Card.Rank.values()[random.nextInt(Card.Rank.values().length)]);
+            game.getPlayers().add(p);
+        }
+        game.setCurrentPlayerIndex(random.nextInt(players));
+        for (int i = random.nextInt(60); i > 0; i--) {
+            game.getDrawPile().push(randomCard(random));
+        }
+        game.getDrawPile().shuffleLazily();
+        for (int i = random.nextInt(5); i > 0 && !game.getDrawPile().isEmpty(); i--) {
+            game.getDrawPile().pop();
+        }
+        if (!game.getDrawPile().isEmpty())
+            game.setBottomFacingCard(game.getDrawPile().get(0));
+        addCards(game.getDiscardPile(), random.nextInt(10), random);
+        addCards(game.getTempBuffer(), random.nextInt(3), random);
+        return game;
+    }
+
+    private static void addCards(java.util.List<Card> cards, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            cards.add(randomCard(random));
+        }
+    }
+
+    private static Card randomCard(Random random) {
+        return Card.ofId(random.nextInt(Card.MAX_DECKS * Card.DECK_SIZE));
+    }
+}
@@ -0,0 +1,57 @@
+package com.aces.game.service;
+
+import com.aces.game.domain.GameStateCodec;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameServiceTest {
+
+    @Test
+    void rejectedBatchLeavesTheGameAsItWas() {
+        GameService service = new GameService();
+        service.startGame("T", 2);
+        AtomicInteger changes = countChanges(service);
+        byte[] before = GameStateCodec.encode(service.getGame());
+
+        ActionBatchResult result = service.applyActions("p1", List.of(
+                new GameAction(GameAction.DRAW, null, null),
+                new GameAction(GameAction.DISCARD, 0, null),
+                new GameAction(GameAction.PLAY, 99, null)));
+
+        assertEquals(0, result.applied());
+        assertEquals(2, result.rejectedIndex());
+        assertArrayEquals(before, GameStateCodec.encode(service.getGame()));
+        assertEquals(0, changes.get());
+    }
+
+    @Test
+    void acceptedBatchIsOneChange() {
+        GameService service = new GameService();
+        service.startGame("T", 2);
+        AtomicInteger changes = countChanges(service);
+        long version = service.getGame().getStateVersion();
+
+        ActionBatchResult result = service.applyActions("p1", List.of(
+                new GameAction(GameAction.DRAW, null, null),
+                new GameAction(GameAction.DISCARD, 0, null)));
+
+        assertEquals(2, result.applied());
+        assertEquals(-1, result.rejectedIndex());
+        assertEquals(version + 1, service.getGame().getStateVersion());
+        assertEquals(1, changes.get());
+    }
+
+    private static AtomicInteger countChanges(GameService service) {
+        AtomicInteger changes = new AtomicInteger();
+        service.addListener(event -> {
+            if (GameEvent.STATE.equals(event.type()))
+                changes.incrementAndGet();
+        });
+        return changes;
+    }
+}
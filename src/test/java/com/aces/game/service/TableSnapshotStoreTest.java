@@ -0,0 +1,72 @@
+package com.aces.game.service;
+
+import com.aces.game.domain.GameState;
+import com.aces.game.domain.GameStateCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TableSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void resumesTheNewestSnapshotThatChecksOut() throws IOException {
+        String file = dir.resolve("table.bin").toString();
+
+        // Snapshot 1 (slot 1): game A
+        GameService first = new GameService();
+        TableSnapshotStore store = new TableSnapshotStore(first, file);
+        first.startGame("A", 2);
+        byte[] gameA = GameStateCodec.encode(first.getGame());
+        store.shutdown();
+
+        // Resumes A; snapshot 2 (slot 0): game B
+        GameService second = new GameService();
+        store = new TableSnapshotStore(second, file);
+        assertArrayEquals(resumed(gameA), GameStateCodec.encode(second.getGame()));
+        second.startGame("B", 3);
+        byte[] gameB = GameStateCodec.encode(second.getGame());
+        store.shutdown();
+
+        GameService third = new GameService();
+        new TableSnapshotStore(third, file).shutdown();
+        assertArrayEquals(resumed(gameB), GameStateCodec.encode(third.getGame()));
+
+        // A damaged newest slot falls back to the older one
+        corruptPayload(file, 0);
+        GameService fourth = new GameService();
+        new TableSnapshotStore(fourth, file).shutdown();
+        assertArrayEquals(resumed(gameA), GameStateCodec.encode(fourth.getGame()));
+
+        // And with both damaged there is nothing to resume
+        corruptPayload(file, 1);
+        GameService fifth = new GameService();
+        new TableSnapshotStore(fifth, file).shutdown();
+        assertNull(fifth.getGame());
+    }
+
+    // A saved game as it reads after restoreGame, which counts one change
+    private static byte[] resumed(byte[] saved) {
+        GameState game = GameStateCodec.decode(saved);
+        game.setStateVersion(game.getStateVersion() + 1);
+        return GameStateCodec.encode(game);
+    }
+
+    private static void corruptPayload(String file, int slot) throws IOException {
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            long at = (long) slot * TableSnapshotStore.SLOT_BYTES + TableSnapshotStore.SLOT_HEADER_BYTES + 5;
+            f.seek(at);
+            int b = f.read();
+            f.seek(at);
+            f.write(b ^ 0x40);
+        }
+    }
+}
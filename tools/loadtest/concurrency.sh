@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+# Holds CLIENTS slow requests open at once, then times a fast request.
+#
+# Each slow client uploads a padded /game/actions body at RATE, so its request
+# occupies a server thread for ~BODY_KB/RATE seconds while Tomcat blocks reading
+# it. With the default 200-thread pool the probe queues behind them; with
+# virtual threads it is answered right away. See VIRTUAL_THREADS.md.
+#
+# Usage: tools/loadtest/concurrency.sh [base-url] [clients]
+set -euo pipefail
+
+BASE=${1:-http://localhost:8080}
+CLIENTS=${2:-1000}
+BODY_KB=${BODY_KB:-16}
+RATE=${RATE:-1k}
+
+curl -s -o /dev/null -X POST -d "playerName=Load&cpuCount=3" "$BASE/start"
+
+body=$(mktemp)
+trap 'rm -f "$body"; kill $(jobs -p) 2>/dev/null || true' EXIT
+printf '{"playerId":"p1","actions":[],"pad":"%s"}' "$(head -c $((BODY_KB * 1024)) /dev/zero | tr '\0' x)" > "$body"
+
+for _ in $(seq "$CLIENTS"); do
+    curl -s -o /dev/null --limit-rate "$RATE" -H 'Content-Type: application/json' \
+        --data-binary @"$body" "$BASE/game/actions" &
+done
+
+sleep 3
+echo "Probe with $CLIENTS slow requests in flight:"
+curl -s -o /dev/null -w '  GET /api/game/state -> %{http_code} in %{time_total}s\n' --max-time 60 "$BASE/api/game/state"
+
+wait